@@ -0,0 +1,175 @@
+package com.miniverse.modularinfrastructure.api.wires.utils;
+
+import com.miniverse.modularinfrastructure.api.wires.utils.BinaryHeap.HeapEntry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link IndexedMinHeap} to the deprecated {@link BinaryHeap} in the shortest path search of the energy
+ * handler, on graphs of 10k points. The grid resembles a large wire grid, the random graph has longer jumps and more
+ * decrease-key operations. Run with {@code ./gradlew jmh}.
+ */
+@SuppressWarnings("deprecation")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeapBenchmark
+{
+	@Param({"10000"})
+	public int numNodes;
+	@Param({"GRID", "RANDOM"})
+	public GraphShape shape;
+
+	// Same compressed sparse row layout as the energy graph
+	private int[] firstEdge;
+	private int[] edgeTarget;
+	private double[] edgeLoss;
+
+	@Setup
+	public void buildGraph()
+	{
+		Random rand = new Random(42);
+		int[][] neighbours = shape.build(numNodes, rand);
+		firstEdge = new int[numNodes+1];
+		for(int i = 0; i < numNodes; ++i)
+			firstEdge[i+1] = firstEdge[i]+neighbours[i].length;
+		edgeTarget = new int[firstEdge[numNodes]];
+		edgeLoss = new double[edgeTarget.length];
+		for(int i = 0; i < numNodes; ++i)
+			for(int j = 0; j < neighbours[i].length; ++j)
+			{
+				edgeTarget[firstEdge[i]+j] = neighbours[i][j];
+				// Low enough that every point is reached with a loss below 1
+				edgeLoss[firstEdge[i]+j] = 1e-5+rand.nextDouble()*1e-4;
+			}
+	}
+
+	@Benchmark
+	public double[] indexedMinHeap()
+	{
+		double[] loss = new double[numNodes];
+		Arrays.fill(loss, Double.POSITIVE_INFINITY);
+		boolean[] settled = new boolean[numNodes];
+		IndexedMinHeap heap = new IndexedMinHeap(numNodes);
+		loss[0] = 0;
+		heap.insert(0, 0);
+		while(!heap.isEmpty())
+		{
+			final int node = heap.extractMin();
+			settled[node] = true;
+			final double lossHere = loss[node];
+			for(int edge = firstEdge[node]; edge < firstEdge[node+1]; ++edge)
+			{
+				final int target = edgeTarget[edge];
+				if(settled[target])
+					continue;
+				final double alternative = lossHere+(1-lossHere)*edgeLoss[edge];
+				if(!heap.contains(target))
+				{
+					loss[target] = alternative;
+					heap.insert(target, alternative);
+				}
+				else if(alternative < loss[target])
+				{
+					loss[target] = alternative;
+					heap.decreaseKey(target, alternative);
+				}
+			}
+		}
+		return loss;
+	}
+
+	@Benchmark
+	public double[] binaryHeap()
+	{
+		double[] loss = new double[numNodes];
+		Arrays.fill(loss, Double.POSITIVE_INFINITY);
+		boolean[] settled = new boolean[numNodes];
+		// Same structure as the search before IndexedMinHeap: boxed elements compared through a comparator
+		@SuppressWarnings("unchecked")
+		HeapEntry<Integer>[] entries = new HeapEntry[numNodes];
+		BinaryHeap<Integer> heap = new BinaryHeap<>(Comparator.comparingDouble(node -> loss[node]));
+		loss[0] = 0;
+		entries[0] = heap.insert(0);
+		while(!heap.empty())
+		{
+			final int node = heap.extractMin();
+			entries[node] = null;
+			settled[node] = true;
+			final double lossHere = loss[node];
+			for(int edge = firstEdge[node]; edge < firstEdge[node+1]; ++edge)
+			{
+				final int target = edgeTarget[edge];
+				if(settled[target])
+					continue;
+				final double alternative = lossHere+(1-lossHere)*edgeLoss[edge];
+				if(entries[target]==null)
+				{
+					loss[target] = alternative;
+					entries[target] = heap.insert(target);
+				}
+				else if(alternative < loss[target])
+				{
+					loss[target] = alternative;
+					heap.decreaseKey(entries[target]);
+				}
+			}
+		}
+		return loss;
+	}
+
+	public enum GraphShape
+	{
+		// Square grid, every point connected to its up to four neighbours
+		GRID
+				{
+					@Override
+					int[][] build(int numNodes, Random rand)
+					{
+						final int width = (int)Math.ceil(Math.sqrt(numNodes));
+						int[][] neighbours = new int[numNodes][];
+						for(int i = 0; i < numNodes; ++i)
+						{
+							final int x = i%width;
+							int[] candidates = {i-width, i+width, x > 0?i-1: -1, x < width-1?i+1: -1};
+							neighbours[i] = Arrays.stream(candidates).filter(n -> n >= 0&&n < numNodes).toArray();
+						}
+						return neighbours;
+					}
+				},
+		// A chain through all points, so everything is connected, plus two random connections per point
+		RANDOM
+				{
+					@Override
+					int[][] build(int numNodes, Random rand)
+					{
+						int[][] neighbours = new int[numNodes][0];
+						for(int i = 1; i < numNodes; ++i)
+							connect(neighbours, i-1, i);
+						for(int i = 0; i < numNodes; ++i)
+							for(int j = 0; j < 2; ++j)
+								connect(neighbours, i, rand.nextInt(numNodes));
+						return neighbours;
+					}
+				};
+
+		abstract int[][] build(int numNodes, Random rand);
+
+		private static void connect(int[][] neighbours, int a, int b)
+		{
+			if(a==b)
+				return;
+			neighbours[a] = Arrays.copyOf(neighbours[a], neighbours[a].length+1);
+			neighbours[a][neighbours[a].length-1] = b;
+			neighbours[b] = Arrays.copyOf(neighbours[b], neighbours[b].length+1);
+			neighbours[b][neighbours[b].length-1] = a;
+		}
+	}
+}
@@ -3,6 +3,7 @@ package com.miniverse.modularinfrastructure;
 import org.slf4j.Logger;
 
 import com.mojang.logging.LogUtils;
+import com.miniverse.modularinfrastructure.common.config.IEServerConfig;
 
 import net.minecraft.core.registries.Registries;
 import net.minecraft.network.chat.Component;
@@ -70,6 +71,7 @@ public class ModularInfrastructure {
         
         // Register config
         modContainer.registerConfig(ModConfig.Type.COMMON, Config.SPEC);
+        modContainer.registerConfig(ModConfig.Type.SERVER, IEServerConfig.CONFIG_SPEC);
         
         // Register event handlers
         NeoForge.EVENT_BUS.addListener(this::onRegisterCommands);
@@ -88,6 +90,24 @@ public class ModularInfrastructure {
             );
             com.miniverse.modularinfrastructure.api.wires.GlobalWireNetwork.SANITIZE_CONNECTIONS.set(() -> false);
             com.miniverse.modularinfrastructure.api.wires.GlobalWireNetwork.VALIDATE_CONNECTIONS.set(() -> false);
+            com.miniverse.modularinfrastructure.api.wires.GlobalWireNetwork.PARALLEL_TICKING.set(
+                () -> IEServerConfig.getOrDefault(IEServerConfig.WIRES.parallelTicking)
+            );
+            com.miniverse.modularinfrastructure.api.wires.GlobalWireNetwork.CHECK_PARALLEL_DETERMINISM.set(
+                () -> IEServerConfig.getOrDefault(IEServerConfig.WIRES.checkParallelDeterminism)
+            );
+            com.miniverse.modularinfrastructure.api.wires.GlobalWireNetwork.ENCODE_IN_BACKGROUND.set(
+                () -> IEServerConfig.getOrDefault(IEServerConfig.WIRES.encodeInBackground)
+            );
+            com.miniverse.modularinfrastructure.api.wires.GlobalWireNetwork.LAZY_LOADING.set(
+                () -> IEServerConfig.getOrDefault(IEServerConfig.WIRES.lazyLoading)
+            );
+            com.miniverse.modularinfrastructure.api.wires.GlobalWireNetwork.JOURNAL_CHANGES.set(
+                () -> IEServerConfig.getOrDefault(IEServerConfig.WIRES.journalChanges)
+            );
+            com.miniverse.modularinfrastructure.api.utils.DeferredTaskQueue.TIME_BUDGET_MICROS.set(
+                () -> IEServerConfig.getOrDefault(IEServerConfig.WIRES.deferredTaskBudgetMicros)
+            );
             
             // Initialize wire coil use handler
             com.miniverse.modularinfrastructure.api.wires.utils.WirecoilUtils.COIL_USE.set(
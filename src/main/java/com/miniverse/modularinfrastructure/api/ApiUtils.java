@@ -1,5 +1,7 @@
 package com.miniverse.modularinfrastructure.api;
 
+import com.miniverse.modularinfrastructure.api.utils.DeferredTaskQueue;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.level.Level;
@@ -25,13 +27,20 @@ public class ApiUtils {
     }
     
     /**
-     * Add a task to be run on the next server tick
+     * Add a task to be run on a later server tick, see {@link DeferredTaskQueue}. Unless forceFuture is set, the task
+     * runs immediately if this is called on the server thread
      */
     public static void addFutureServerTask(Level world, Runnable task, boolean forceFuture) {
         if (!world.isClientSide()) {
-            // In a real implementation, this would queue the task
-            // For now, just run it immediately
-            task.run();
+            MinecraftServer server = world.getServer();
+            if (!server.isSameThread()) {
+                // The queue is only accessed from the server thread
+                server.execute(() -> DeferredTaskQueue.enqueue(world, task));
+            } else if (forceFuture) {
+                DeferredTaskQueue.enqueue(world, task);
+            } else {
+                task.run();
+            }
         }
     }
     
@@ -0,0 +1,110 @@
+package com.miniverse.modularinfrastructure.api.utils;
+
+import com.miniverse.modularinfrastructure.api.Lib;
+import net.minecraft.world.level.Level;
+import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.fml.common.EventBusSubscriber;
+import net.neoforged.neoforge.event.level.LevelEvent;
+import net.neoforged.neoforge.event.tick.LevelTickEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.IntSupplier;
+
+/**
+ * Per-level queue of server tasks, drained at the start of each level tick. Draining stops once the configured time
+ * budget is used up, the remaining tasks run in later ticks. At least one task runs per tick, and tasks added while
+ * draining are never run in the same tick.
+ */
+@EventBusSubscriber(modid = Lib.MODID)
+public class DeferredTaskQueue {
+    public static final SetRestrictedField<IntSupplier> TIME_BUDGET_MICROS = SetRestrictedField.common();
+    private static final Logger LOGGER = LogManager.getLogger(Lib.MODID+"-tasks");
+    private static final Map<Level, DeferredTaskQueue> QUEUES = new WeakHashMap<>();
+
+    private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+    private int ranLastTick = 0;
+    private long lastDrainNanos = 0;
+    private long maxDrainNanos = 0;
+
+    /**
+     * Server thread only
+     */
+    public static void enqueue(Level level, Runnable task) {
+        QUEUES.computeIfAbsent(level, $ -> new DeferredTaskQueue()).tasks.add(task);
+    }
+
+    /**
+     * @return the current statistics of the queue of the given level
+     */
+    public static Stats getStats(Level level) {
+        DeferredTaskQueue queue = QUEUES.get(level);
+        if (queue == null) {
+            return new Stats(0, 0, 0, 0);
+        }
+        return new Stats(queue.tasks.size(), queue.ranLastTick, queue.lastDrainNanos, queue.maxDrainNanos);
+    }
+
+    @SubscribeEvent
+    public static void onLevelTick(LevelTickEvent.Pre event) {
+        if (event.getLevel().isClientSide()) {
+            return;
+        }
+        DeferredTaskQueue queue = QUEUES.get(event.getLevel());
+        if (queue != null) {
+            queue.drain();
+        }
+    }
+
+    @SubscribeEvent
+    public static void onLevelUnload(LevelEvent.Unload event) {
+        if (event.getLevel() instanceof Level level) {
+            DeferredTaskQueue queue = QUEUES.remove(level);
+            if (queue != null && !queue.tasks.isEmpty()) {
+                LOGGER.debug("Dropping {} deferred tasks of unloaded level {}", queue.tasks.size(), level.dimension());
+            }
+        }
+    }
+
+    private void drain() {
+        if (tasks.isEmpty()) {
+            ranLastTick = 0;
+            lastDrainNanos = 0;
+            return;
+        }
+        final long budget = TIME_BUDGET_MICROS.get().getAsInt()*1000L;
+        final long start = System.nanoTime();
+        // Tasks added by the tasks below are left for the next tick
+        final int available = tasks.size();
+        int ran = 0;
+        long elapsed = 0;
+        while (ran < available && (ran == 0 || elapsed < budget)) {
+            Runnable task = tasks.poll();
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                LOGGER.error("Error executing deferred task {}", task, e);
+            }
+            ++ran;
+            elapsed = System.nanoTime()-start;
+        }
+        ranLastTick = ran;
+        lastDrainNanos = elapsed;
+        maxDrainNanos = Math.max(maxDrainNanos, elapsed);
+        if (ran < available) {
+            LOGGER.debug("Deferred {} tasks to the next tick after {}us", tasks.size(), elapsed/1000);
+        }
+    }
+
+    /**
+     * @param queued         tasks waiting to be run
+     * @param ranLastTick    tasks run in the last tick
+     * @param lastDrainNanos time spent running tasks in the last tick
+     * @param maxDrainNanos  longest time spent running tasks in one tick since the level was loaded
+     */
+    public record Stats(int queued, int ranLastTick, long lastDrainNanos, long maxDrainNanos) {
+    }
+}
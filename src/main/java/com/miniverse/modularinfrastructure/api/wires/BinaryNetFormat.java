@@ -0,0 +1,379 @@
+package com.miniverse.modularinfrastructure.api.wires;
+
+import com.miniverse.modularinfrastructure.api.wires.proxy.IICProxyProvider;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.phys.Vec3;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Compact binary encoding of local nets, used instead of the NBT layout of {@link LocalWireNetwork#writeToNBT()} when
+ * saving. Each net is encoded separately so the encoded form can be cached per net. The joined nets are preceded by the
+ * names of all wire types in {@link WireTypeRegistry} ID order, nets refer to wire types by these IDs. Layout of one
+ * net:
+ * <ul>
+ *     <li>Origin position as a packed long. All other positions are stored as zigzag varint offsets</li>
+ *     <li>Connectors: position, proxy points, proxy internal connections and the indices of the points in this net</li>
+ *     <li>Wires: flags, both ends (end B relative to end A), and for non-internal wires the type ID and both offsets
+ *     as floats</li>
+ * </ul>
+ * Format 1 stored a table of type names in every net instead, it can still be read.
+ */
+final class BinaryNetFormat
+{
+	static final int VERSION = 2;
+	private static final int FORMAT_PER_NET_TYPES = 1;
+	private static final int FLAG_INTERNAL = 1;
+
+	private BinaryNetFormat()
+	{
+	}
+
+	/**
+	 * Server thread. Copies everything {@link #encode(Snapshot)} needs out of the net and its connectors
+	 */
+	static Snapshot snapshot(LocalWireNetwork net, IICProxyProvider proxyProvider)
+	{
+		Collection<BlockPos> connectors = net.getConnectors();
+		BlockPos origin = connectors.isEmpty()?BlockPos.ZERO: connectors.iterator().next();
+
+		Long2ObjectMap<IntList> pointsByBlock = new Long2ObjectOpenHashMap<>();
+		List<WireSnapshot> wires = new ArrayList<>();
+		for(ConnectionPoint cp : net.getConnectionPoints())
+		{
+			pointsByBlock.computeIfAbsent(cp.position().asLong(), k -> new IntArrayList(2)).add(cp.index());
+			for(Connection conn : net.getConnections(cp))
+				if(conn.isPositiveEnd(cp))
+				{
+					int typeId = conn.isInternal()?-1: WireTypeRegistry.getId(conn.type);
+					wires.add(new WireSnapshot(
+							conn.isInternal(), conn.getEndA(), conn.getEndB(), typeId,
+							conn.getEndAOffset(), conn.getEndBOffset()
+					));
+				}
+		}
+
+		List<ProxySnapshot> proxies = new ArrayList<>(connectors.size());
+		for(BlockPos pos : connectors)
+		{
+			IImmersiveConnectable iic = net.getConnector(pos);
+			IImmersiveConnectable proxy = iic.isProxy()?iic: proxyProvider.createFor(iic);
+			if(proxy==null)
+				continue;
+			List<ConnectionPoint> internal = new ArrayList<>();
+			for(Connection conn : proxy.getInternalConnections())
+			{
+				internal.add(conn.getEndA());
+				internal.add(conn.getEndB());
+			}
+			IntList netPoints = pointsByBlock.get(proxy.getPosition().asLong());
+			proxies.add(new ProxySnapshot(
+					proxy.getPosition(), List.copyOf(proxy.getConnectionPoints()), internal,
+					netPoints!=null?netPoints: IntList.of()
+			));
+		}
+		return new Snapshot(origin, proxies, wires);
+	}
+
+	/**
+	 * Any thread
+	 */
+	static byte[] encode(Snapshot snapshot)
+	{
+		FriendlyByteBuf out = new FriendlyByteBuf(Unpooled.buffer());
+		BlockPos origin = snapshot.origin();
+		out.writeLong(origin.asLong());
+
+		out.writeVarInt(snapshot.proxies().size());
+		for(ProxySnapshot proxy : snapshot.proxies())
+		{
+			BlockPos pos = proxy.pos();
+			writeOffset(out, origin, pos);
+			out.writeVarInt(proxy.points().size());
+			for(ConnectionPoint cp : proxy.points())
+				writePoint(out, pos, cp);
+			List<ConnectionPoint> internalEnds = proxy.internalEnds();
+			out.writeVarInt(internalEnds.size()/2);
+			for(int i = 0; i < internalEnds.size(); i += 2)
+			{
+				writeOffset(out, pos, internalEnds.get(i).position());
+				out.writeVarInt(internalEnds.get(i).index());
+				out.writeVarInt(internalEnds.get(i+1).index());
+			}
+			out.writeIntIdList(proxy.netPoints());
+		}
+
+		out.writeVarInt(snapshot.wires().size());
+		for(WireSnapshot wire : snapshot.wires())
+		{
+			out.writeByte(wire.internal()?FLAG_INTERNAL: 0);
+			writePoint(out, origin, wire.endA());
+			writePoint(out, wire.endA().position(), wire.endB());
+			if(!wire.internal())
+			{
+				out.writeVarInt(wire.typeId());
+				writeVec(out, wire.offsetA());
+				writeVec(out, wire.offsetB());
+			}
+		}
+		return ByteBufUtil.getBytes(out);
+	}
+
+	/**
+	 * Any thread. Handlers of the returned net still need to be created using {@link LocalWireNetwork#initHandlers()}
+	 */
+	static LocalWireNetwork decode(byte[] data, SavedNets source, GlobalWireNetwork globalNet)
+	{
+		FriendlyByteBuf in = new FriendlyByteBuf(Unpooled.wrappedBuffer(data));
+		LocalWireNetwork.Builder builder = new LocalWireNetwork.Builder(globalNet);
+		IICProxyProvider proxyProvider = globalNet.getProxyProvider();
+		BlockPos origin = BlockPos.of(in.readLong());
+
+		WireType[] types = source.types();
+		if(source.format()==FORMAT_PER_NET_TYPES)
+		{
+			types = new WireType[in.readVarInt()];
+			for(int i = 0; i < types.length; ++i)
+				types[i] = WireType.getValue(in.readUtf());
+		}
+
+		boolean skippedData = false;
+		int numConnectors = in.readVarInt();
+		for(int i = 0; i < numConnectors; ++i)
+		{
+			BlockPos pos = readOffset(in, origin);
+			int numProxyPoints = in.readVarInt();
+			List<ConnectionPoint> proxyPoints = new ArrayList<>(numProxyPoints);
+			for(int j = 0; j < numProxyPoints; ++j)
+				proxyPoints.add(readPoint(in, pos));
+			int numInternal = in.readVarInt();
+			List<Connection> internal = new ArrayList<>(numInternal);
+			for(int j = 0; j < numInternal; ++j)
+				internal.add(new Connection(readOffset(in, pos), in.readVarInt(), in.readVarInt()));
+			IImmersiveConnectable proxy = proxyProvider.create(pos, internal, proxyPoints);
+			for(int index : in.readIntIdList())
+				if(!builder.addConnector(new ConnectionPoint(pos, index), proxy))
+				{
+					WireLogger.logger.error("Duplicate connection point {} {}", pos, index);
+					skippedData = true;
+				}
+		}
+
+		int numWires = in.readVarInt();
+		for(int i = 0; i < numWires; ++i)
+		{
+			int flags = in.readByte();
+			ConnectionPoint endA = readPoint(in, origin);
+			ConnectionPoint endB = readPoint(in, endA.position());
+			Connection wire;
+			if((flags&FLAG_INTERNAL)!=0)
+			{
+				if(!endA.position().equals(endB.position()))
+				{
+					WireLogger.logger.error("Internal wire from {} to {} spans multiple blocks", endA, endB);
+					skippedData = true;
+					continue;
+				}
+				wire = new Connection(endA.position(), endA.index(), endB.index());
+			}
+			else
+			{
+				int typeId = in.readVarInt();
+				WireType type = typeId < types.length?types[typeId]: WireType.COPPER;
+				wire = new Connection(type, endA, endB, readVec(in), readVec(in));
+			}
+			if(!builder.addConnection(wire))
+			{
+				WireLogger.logger.error("Skipping wire from {} to {}, missing end point or duplicate", endA, endB);
+				skippedData = true;
+			}
+		}
+		LocalWireNetwork net = builder.build();
+		// The data can only be saved again as is if it uses the same format and wire type IDs as this session
+		if(!skippedData&&source.canSaveUnchanged())
+			net.setEncoded(data);
+		return net;
+	}
+
+	/**
+	 * Any thread. Reads only the positions of the points in an encoded net, without creating the net
+	 *
+	 * @return packed positions of the chunks containing points of the net
+	 */
+	static long[] readChunks(byte[] data, SavedNets source)
+	{
+		FriendlyByteBuf in = new FriendlyByteBuf(Unpooled.wrappedBuffer(data));
+		BlockPos origin = BlockPos.of(in.readLong());
+		if(source.format()==FORMAT_PER_NET_TYPES)
+		{
+			int numTypes = in.readVarInt();
+			for(int i = 0; i < numTypes; ++i)
+				in.skipBytes(in.readVarInt());
+		}
+		LongSet chunks = new LongOpenHashSet();
+		int numConnectors = in.readVarInt();
+		for(int i = 0; i < numConnectors; ++i)
+		{
+			BlockPos pos = readOffset(in, origin);
+			int numProxyPoints = in.readVarInt();
+			for(int j = 0; j < numProxyPoints; ++j)
+				readPoint(in, pos);
+			int numInternal = in.readVarInt();
+			for(int j = 0; j < numInternal; ++j)
+			{
+				readOffset(in, pos);
+				in.readVarInt();
+				in.readVarInt();
+			}
+			int numNetPoints = in.readVarInt();
+			for(int j = 0; j < numNetPoints; ++j)
+				in.readVarInt();
+			if(numNetPoints > 0)
+				chunks.add(ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4));
+		}
+		return chunks.toLongArray();
+	}
+
+	/**
+	 * Joins encoded nets into one array, each prefixed by its length, after the names of the wire types of this session
+	 */
+	static byte[] join(Collection<byte[]> encodedNets)
+	{
+		FriendlyByteBuf out = new FriendlyByteBuf(Unpooled.buffer());
+		List<String> typeNames = WireTypeRegistry.getNamesById();
+		out.writeVarInt(typeNames.size());
+		for(String name : typeNames)
+			out.writeUtf(name);
+		out.writeVarInt(encodedNets.size());
+		for(byte[] net : encodedNets)
+			out.writeByteArray(net);
+		return ByteBufUtil.getBytes(out);
+	}
+
+	static SavedNets split(byte[] joined, int format)
+	{
+		FriendlyByteBuf in = new FriendlyByteBuf(Unpooled.wrappedBuffer(joined));
+		WireType[] types = new WireType[0];
+		boolean idsMatch = false;
+		if(format!=FORMAT_PER_NET_TYPES)
+		{
+			types = new WireType[in.readVarInt()];
+			idsMatch = true;
+			for(int i = 0; i < types.length; ++i)
+			{
+				String name = in.readUtf();
+				types[i] = WireType.getValue(name);
+				idsMatch &= WireTypeRegistry.getId(types[i])==i&&types[i].getUniqueName().equals(name);
+			}
+		}
+		int numNets = in.readVarInt();
+		List<byte[]> encodedNets = new ArrayList<>(numNets);
+		for(int i = 0; i < numNets; ++i)
+			encodedNets.add(in.readByteArray());
+		return new SavedNets(format, types, idsMatch, encodedNets);
+	}
+
+	static void writePoint(FriendlyByteBuf out, BlockPos relativeTo, ConnectionPoint cp)
+	{
+		writeOffset(out, relativeTo, cp.position());
+		out.writeVarInt(cp.index());
+	}
+
+	static ConnectionPoint readPoint(FriendlyByteBuf in, BlockPos relativeTo)
+	{
+		BlockPos pos = readOffset(in, relativeTo);
+		return new ConnectionPoint(pos, in.readVarInt());
+	}
+
+	private static void writeOffset(FriendlyByteBuf out, BlockPos relativeTo, BlockPos pos)
+	{
+		out.writeVarInt(zigzag(pos.getX()-relativeTo.getX()));
+		out.writeVarInt(zigzag(pos.getY()-relativeTo.getY()));
+		out.writeVarInt(zigzag(pos.getZ()-relativeTo.getZ()));
+	}
+
+	private static BlockPos readOffset(FriendlyByteBuf in, BlockPos relativeTo)
+	{
+		int x = unzigzag(in.readVarInt());
+		int y = unzigzag(in.readVarInt());
+		int z = unzigzag(in.readVarInt());
+		return relativeTo.offset(x, y, z);
+	}
+
+	static void writeVec(FriendlyByteBuf out, Vec3 vec)
+	{
+		out.writeFloat((float)vec.x);
+		out.writeFloat((float)vec.y);
+		out.writeFloat((float)vec.z);
+	}
+
+	static Vec3 readVec(FriendlyByteBuf in)
+	{
+		float x = in.readFloat();
+		float y = in.readFloat();
+		float z = in.readFloat();
+		return new Vec3(x, y, z);
+	}
+
+	private static int zigzag(int value)
+	{
+		return (value<<1)^(value>>31);
+	}
+
+	private static int unzigzag(int encoded)
+	{
+		return (encoded>>>1)^-(encoded&1);
+	}
+
+	/**
+	 * The encoded nets of one save
+	 *
+	 * @param types    the wire type for each ID used by the nets. Empty for format 1
+	 * @param idsMatch whether every type has the same ID in this session
+	 */
+	record SavedNets(int format, WireType[] types, boolean idsMatch, List<byte[]> nets)
+	{
+		/**
+		 * @return whether the nets can be written to a new save without decoding and encoding them again
+		 */
+		boolean canSaveUnchanged()
+		{
+			return format==VERSION&&idsMatch;
+		}
+	}
+
+	/**
+	 * Immutable copy of the data of one local net, so it can be encoded while the net keeps changing
+	 */
+	record Snapshot(BlockPos origin, List<ProxySnapshot> proxies, List<WireSnapshot> wires)
+	{
+	}
+
+	/**
+	 * @param internalEnds both ends of every internal connection of the proxy, in pairs
+	 * @param netPoints    indices of the points at this block that are part of the net
+	 */
+	private record ProxySnapshot(
+			BlockPos pos, List<ConnectionPoint> points, List<ConnectionPoint> internalEnds, IntList netPoints
+	)
+	{
+	}
+
+	private record WireSnapshot(
+			boolean internal, ConnectionPoint endA, ConnectionPoint endB, int typeId, Vec3 offsetA, Vec3 offsetB
+	)
+	{
+	}
+}
@@ -0,0 +1,228 @@
+package com.miniverse.modularinfrastructure.api.wires;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.util.Mth;
+import net.minecraft.world.phys.Vec3;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The wires synced to a client, only used to render and raytrace them. Each wire is stored once by ID with its shape
+ * and colour, and by section with the render points inside that section. Unlike the server-side network there are no
+ * connectors, proxies, local networks or handlers.
+ */
+public class ClientWireStore
+{
+	// Wires further than this from a ray are not hit by it
+	private static final double RAYTRACE_TOLERANCE = 0.25;
+
+	private final Object2IntMap<Connection> idByConnection = new Object2IntOpenHashMap<>();
+	private final Int2ObjectMap<StoredWire> wiresById = new Int2ObjectOpenHashMap<>();
+	// A wire may leave a section and enter it again further along, so there can be several parts per section
+	private final Long2ObjectMap<Int2ObjectMap<List<WireSegments>>> wiresBySection = new Long2ObjectOpenHashMap<>();
+	private int nextId = 0;
+
+	ClientWireStore()
+	{
+		idByConnection.defaultReturnValue(-1);
+	}
+
+	/**
+	 * Adds the given wire, replacing the stored shape if the wire is already known
+	 *
+	 * @param changedSections receives all sections the wire was or is rendered in
+	 */
+	public void add(Connection conn, Set<SectionPos> changedSections)
+	{
+		if(conn.isInternal())
+			return;
+		remove(conn, changedSections);
+		final int id = nextId++;
+		final int colour = conn.type.getColour(conn);
+		LongArrayList sections = new LongArrayList();
+		int sectionStart = 0;
+		SectionPos currentSection = null;
+		// Render points are split into runs of consecutive points in the same section
+		BlockPos origin = conn.getEndA().position();
+		for(int i = 0; i <= Connection.RENDER_POINTS_PER_WIRE; ++i)
+		{
+			Vec3 relative = conn.getCatenaryData().getRenderPoint(i);
+			SectionPos section = SectionPos.of(origin.offset(BlockPos.containing(relative)));
+			if(currentSection!=null&&(!section.equals(currentSection)||i==Connection.RENDER_POINTS_PER_WIRE))
+			{
+				addSegments(currentSection, new WireSegments(id, conn, colour, sectionStart, i), sections);
+				changedSections.add(currentSection);
+				currentSection = null;
+			}
+			if(currentSection==null)
+			{
+				currentSection = section;
+				sectionStart = i;
+			}
+		}
+		idByConnection.put(conn, id);
+		wiresById.put(id, new StoredWire(conn, colour, sections.toLongArray()));
+	}
+
+	/**
+	 * @param changedSections receives all sections the wire was rendered in
+	 * @return whether the wire was stored
+	 */
+	public boolean remove(Connection conn, Set<SectionPos> changedSections)
+	{
+		final int id = idByConnection.removeInt(conn);
+		if(id < 0)
+			return false;
+		StoredWire wire = wiresById.remove(id);
+		for(long section : wire.sections())
+		{
+			Int2ObjectMap<List<WireSegments>> inSection = wiresBySection.get(section);
+			if(inSection!=null)
+			{
+				inSection.remove(id);
+				if(inSection.isEmpty())
+					wiresBySection.remove(section);
+			}
+			changedSections.add(SectionPos.of(section));
+		}
+		return true;
+	}
+
+	/**
+	 * @return a copy of the parts of all wires rendered in the given section, or null if there are none
+	 */
+	@Nullable
+	public List<WireSegments> getWiresIn(SectionPos section)
+	{
+		Int2ObjectMap<List<WireSegments>> inSection = wiresBySection.get(section.asLong());
+		if(inSection==null)
+			return null;
+		List<WireSegments> result = new ArrayList<>(inSection.size());
+		for(List<WireSegments> forWire : inSection.values())
+			result.addAll(forWire);
+		return result;
+	}
+
+	public int size()
+	{
+		return wiresById.size();
+	}
+
+	/**
+	 * @return the wire hit closest to start by the ray from start to end, or null if no wire is hit
+	 */
+	@Nullable
+	public Connection raytrace(Vec3 start, Vec3 end, @Nullable Connection ignored)
+	{
+		final int minX = SectionPos.blockToSectionCoord(Math.min(start.x, end.x)-RAYTRACE_TOLERANCE);
+		final int minY = SectionPos.blockToSectionCoord(Math.min(start.y, end.y)-RAYTRACE_TOLERANCE);
+		final int minZ = SectionPos.blockToSectionCoord(Math.min(start.z, end.z)-RAYTRACE_TOLERANCE);
+		final int maxX = SectionPos.blockToSectionCoord(Math.max(start.x, end.x)+RAYTRACE_TOLERANCE);
+		final int maxY = SectionPos.blockToSectionCoord(Math.max(start.y, end.y)+RAYTRACE_TOLERANCE);
+		final int maxZ = SectionPos.blockToSectionCoord(Math.max(start.z, end.z)+RAYTRACE_TOLERANCE);
+		Connection closest = null;
+		double closestAlongRay = Double.POSITIVE_INFINITY;
+		for(int x = minX; x <= maxX; ++x)
+			for(int y = minY; y <= maxY; ++y)
+				for(int z = minZ; z <= maxZ; ++z)
+				{
+					Int2ObjectMap<List<WireSegments>> inSection = wiresBySection.get(SectionPos.asLong(x, y, z));
+					if(inSection==null)
+						continue;
+					for(List<WireSegments> forWire : inSection.values())
+						for(WireSegments segments : forWire)
+						{
+							if(segments.connection().equals(ignored))
+								continue;
+							double alongRay = raytraceSegments(start, end, segments);
+							if(alongRay < closestAlongRay)
+							{
+								closest = segments.connection();
+								closestAlongRay = alongRay;
+							}
+						}
+				}
+		return closest;
+	}
+
+	/**
+	 * @return the position along the ray (0 to 1) at which it passes closest to the given wire parts, or infinity if
+	 * it does not pass within the tolerance
+	 */
+	private static double raytraceSegments(Vec3 start, Vec3 end, WireSegments segments)
+	{
+		Connection conn = segments.connection();
+		Vec3 origin = Vec3.atLowerCornerOf(conn.getEndA().position());
+		Vec3 relStart = start.subtract(origin);
+		Vec3 ray = end.subtract(start);
+		double maxDistSq = Mth.square(conn.type.getRenderDiameter()/2+RAYTRACE_TOLERANCE);
+		double result = Double.POSITIVE_INFINITY;
+		Vec3 segmentStart = conn.getCatenaryData().getRenderPoint(segments.firstPointToRender());
+		for(int i = segments.firstPointToRender(); i < segments.lastPointToRender(); ++i)
+		{
+			Vec3 segmentEnd = conn.getCatenaryData().getRenderPoint(i+1);
+			result = Math.min(result, getRayParamIfClose(relStart, ray, segmentStart, segmentEnd.subtract(segmentStart), maxDistSq));
+			segmentStart = segmentEnd;
+		}
+		return result;
+	}
+
+	/**
+	 * Finds the closest points of the segments start+s*ray and wireStart+t*wire, with s and t between 0 and 1
+	 *
+	 * @return s if the points are at most sqrt(maxDistSq) apart, infinity otherwise
+	 */
+	private static double getRayParamIfClose(Vec3 start, Vec3 ray, Vec3 wireStart, Vec3 wire, double maxDistSq)
+	{
+		Vec3 between = start.subtract(wireStart);
+		double rayLenSq = ray.lengthSqr();
+		double wireLenSq = wire.lengthSqr();
+		double rayDotWire = ray.dot(wire);
+		double rayDotBetween = ray.dot(between);
+		double wireDotBetween = wire.dot(between);
+		double denominator = rayLenSq*wireLenSq-rayDotWire*rayDotWire;
+		// Parallel segments: any point of the ray works, use its start
+		double s = denominator > 1e-9?Mth.clamp((rayDotWire*wireDotBetween-rayDotBetween*wireLenSq)/denominator, 0, 1): 0;
+		double t = wireLenSq > 1e-9?(rayDotWire*s+wireDotBetween)/wireLenSq: 0;
+		if(t < 0||t > 1)
+		{
+			t = Mth.clamp(t, 0, 1);
+			s = rayLenSq > 1e-9?Mth.clamp((rayDotWire*t-rayDotBetween)/rayLenSq, 0, 1): 0;
+		}
+		Vec3 onRay = start.add(ray.scale(s));
+		Vec3 onWire = wireStart.add(wire.scale(t));
+		return onRay.distanceToSqr(onWire) <= maxDistSq?s: Double.POSITIVE_INFINITY;
+	}
+
+	private void addSegments(SectionPos section, WireSegments segments, LongArrayList sectionsOut)
+	{
+		List<WireSegments> forWire = wiresBySection
+				.computeIfAbsent(section.asLong(), $ -> new Int2ObjectOpenHashMap<>())
+				.computeIfAbsent(segments.id(), $ -> new ArrayList<>(1));
+		if(forWire.isEmpty())
+			sectionsOut.add(section.asLong());
+		forWire.add(segments);
+	}
+
+	private record StoredWire(Connection connection, int colour, long[] sections)
+	{
+	}
+
+	/**
+	 * The render points from firstPointToRender to lastPointToRender of a wire, all inside one section
+	 */
+	public record WireSegments(int id, Connection connection, int colour, int firstPointToRender, int lastPointToRender)
+	{
+	}
+}
@@ -52,8 +52,7 @@ public class ConnectorBlockEntityHelper
 			else
 				dropHandler = c -> {
 				};
-			for(ConnectionPoint cp : iic.getConnectionPoints())
-				globalNet.removeAllConnectionsAt(cp, dropHandler);
+			globalNet.removeAllConnectionsAt(iic, dropHandler);
 		}
 		if(world.isClientSide&&WireUtils.hasAnyConnections(globalNet, iic))
 			globalNet.onConnectorUnload(iic);
@@ -66,10 +65,9 @@ public class ConnectorBlockEntityHelper
 	)
 	{
 		LocalWireNetwork ret = cachedLocalNets.get(cpIndex);
-		ConnectionPoint cp = new ConnectionPoint(pos, cpIndex);
-		if(ret==null||!ret.isValid(cp))
+		if(ret==null||!ret.isValid(pos, cpIndex))
 		{
-			ret = globalNet.getLocalNet(cp);
+			ret = globalNet.getLocalNet(new ConnectionPoint(pos, cpIndex));
 			cachedLocalNets.put(cpIndex, ret);
 		}
 		return ret;
@@ -15,6 +15,7 @@ import com.miniverse.modularinfrastructure.api.utils.SetRestrictedField;
 import com.miniverse.modularinfrastructure.api.wires.localhandlers.ILocalHandlerProvider;
 import com.miniverse.modularinfrastructure.api.wires.localhandlers.IWorldTickable;
 import com.miniverse.modularinfrastructure.api.wires.proxy.IICProxyProvider;
+import com.miniverse.modularinfrastructure.api.wires.utils.ConnectionPointMap;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.HashMultiset;
@@ -22,8 +23,14 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Multiset;
 import com.google.common.collect.Sets;
 import com.mojang.datafixers.util.Pair;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectArraySet;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ReferenceArraySet;
+import it.unimi.dsi.fastutil.objects.ReferenceLinkedOpenHashSet;
 import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import net.minecraft.Util;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.HolderLookup.Provider;
 import net.minecraft.nbt.CompoundTag;
@@ -48,8 +55,11 @@ import org.jetbrains.annotations.ApiStatus.Internal;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.lang.ref.WeakReference;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -62,6 +72,12 @@ public class GlobalWireNetwork extends SavedData implements IWorldTickable
 {
 	public static final SetRestrictedField<BooleanSupplier> SANITIZE_CONNECTIONS = SetRestrictedField.common();
 	public static final SetRestrictedField<BooleanSupplier> VALIDATE_CONNECTIONS = SetRestrictedField.common();
+	public static final SetRestrictedField<BooleanSupplier> PARALLEL_TICKING = SetRestrictedField.common();
+	public static final SetRestrictedField<BooleanSupplier> CHECK_PARALLEL_DETERMINISM = SetRestrictedField.common();
+	public static final SetRestrictedField<BooleanSupplier> ENCODE_IN_BACKGROUND = SetRestrictedField.common();
+	public static final SetRestrictedField<BooleanSupplier> LAZY_LOADING = SetRestrictedField.common();
+	public static final SetRestrictedField<BooleanSupplier> JOURNAL_CHANGES = SetRestrictedField.common();
+	private static final int BACKGROUND_ENCODE_INTERVAL = 20;
 	@Internal
 	public static final SetRestrictedField<Function<Level, GlobalWireNetwork>> GET_NET_UNCACHED = SetRestrictedField.common();
 
@@ -71,13 +87,32 @@ public class GlobalWireNetwork extends SavedData implements IWorldTickable
 	private static WeakReference<Level> lastClientWorld = new WeakReference<>(null);
 	private static GlobalWireNetwork lastClientNet = null;
 
-	private final Map<ConnectionPoint, LocalWireNetwork> localNetsByPos = new HashMap<>();
+	private final ConnectionPointMap<LocalWireNetwork> localNetsByPos = new ConnectionPointMap<>();
+	// Same key set as localNetsByPos, bucketed by packed chunk position for chunk-scoped queries
+	private final Long2ObjectMap<Set<ConnectionPoint>> connectionPointsByChunk = new Long2ObjectOpenHashMap<>();
 	private final Set<LocalWireNetwork> localNetSet = new ReferenceOpenHashSet<>();
+	// Nets that had tickable handlers or pending tasks at some point since the last tick. Superset of the nets that
+	// actually need to be ticked, idle and invalid nets are dropped lazily in update
+	private final Set<LocalWireNetwork> tickingNets = new ReferenceLinkedOpenHashSet<>();
+	// Saved nets that have not been decoded yet (lazy loading), and the same nets by the chunks containing their points
+	private final Set<PendingNet> pendingNets = new ReferenceLinkedOpenHashSet<>();
+	private final Long2ObjectMap<Set<PendingNet>> pendingNetsByChunk = new Long2ObjectOpenHashMap<>();
 	private final WireCollisionData collisionData;
+	// Only present on the client, where synced wires are not added to the network
+	@Nullable
+	private final ClientWireStore clientWires;
 	private final IICProxyProvider proxyProvider;
 	private final IWireSyncManager syncManager;
+	// Changes since the last save, only present on the server. The generation ties the journal to the saved state
+	@Nullable
+	private WireJournal journal;
+	private boolean journalOpened = false;
+	private long journalGeneration = 0;
 
 	private Map<Pair<BlockPos, Level>, IImmersiveConnectable> queuedLoads = new LinkedHashMap<>();
+	// Connections to remove at the end of the current batchRemovals call, null outside of one
+	@Nullable
+	private Set<Connection> batchedRemovals;
 
 	@Nonnull
 	public static GlobalWireNetwork getNetwork(Level w)
@@ -121,7 +156,8 @@ public class GlobalWireNetwork extends SavedData implements IWorldTickable
 	public GlobalWireNetwork(boolean isClientSide, IICProxyProvider proxyProvider, IWireSyncManager syncManager)
 	{
 		this.proxyProvider = proxyProvider;
-		collisionData = new WireCollisionData(this, isClientSide);
+		collisionData = new WireCollisionData(this);
+		clientWires = isClientSide?new ClientWireStore(): null;
 		this.syncManager = syncManager;
 	}
 
@@ -135,8 +171,20 @@ public class GlobalWireNetwork extends SavedData implements IWorldTickable
 		LocalWireNetwork joined;
 		if(netA!=netB)
 		{
-			joined = netA.merge(netB, () -> new LocalWireNetwork(this));
-			for(ConnectionPoint p : joined.getConnectionPoints())
+			// Union by size: only the points of the smaller net need to be moved
+			LocalWireNetwork absorbed;
+			if(netA.size() >= netB.size())
+			{
+				joined = netA;
+				absorbed = netB;
+			}
+			else
+			{
+				joined = netB;
+				absorbed = netA;
+			}
+			joined.absorb(absorbed);
+			for(ConnectionPoint p : absorbed.getConnectionPoints())
 				putLocalNet(p, joined);
 		}
 		else
@@ -144,57 +192,167 @@ public class GlobalWireNetwork extends SavedData implements IWorldTickable
 		joined.addConnection(conn, this);
 		syncManager.onConnectionAdded(conn);
 		collisionData.addConnection(conn);
+		if(journal!=null)
+			journal.connectionAdded(conn);
 		validateNextTick = true;
 		setDirty();
 	}
 
 	public void removeAllConnectionsAt(IImmersiveConnectable iic, Consumer<Connection> handler)
 	{
-		for(ConnectionPoint cp : iic.getConnectionPoints())
-			removeAllConnectionsAt(cp, handler);
+		removeAllConnectionsAt(iic.getConnectionPoints(), handler);
 	}
 
 	public void removeAllConnectionsAt(ConnectionPoint pos, Consumer<Connection> handler)
+	{
+		removeAllConnectionsAt(ImmutableList.of(pos), handler);
+	}
+
+	private void removeAllConnectionsAt(Collection<ConnectionPoint> points, Consumer<Connection> handler)
 	{
 		processQueuedLoads();
-		LocalWireNetwork net = getLocalNet(pos);
-		List<Connection> conns = new ArrayList<>(net.getConnections(pos));
-		//TODO batch removal method
-		for(Connection conn : conns)
-		{
-			handler.accept(conn);
-			removeConnection(conn);
-		}
+		// Internal connections are attached to two of the points, so collect into a set
+		Set<Connection> conns = new LinkedHashSet<>();
+		for(ConnectionPoint cp : points)
+			conns.addAll(getLocalNet(cp).getConnections(cp));
+		// The handler is still called right before each connection is removed, but the nets are only split at the end
+		removeConnections(conns, handler);
 		validateNextTick = true;
 	}
 
 	public void removeConnection(Connection c)
 	{
+		removeConnections(ImmutableList.of(c));
+	}
+
+	/**
+	 * Removes all given connections from the graph first, and only then checks which of the affected local nets need
+	 * to be split. Only the part that was cut off is moved into a new local net. Prefer this over repeated calls to
+	 * {@link #removeConnection(Connection)} when removing more than one wire at a time.
+	 */
+	public void removeConnections(Collection<Connection> toRemove)
+	{
+		removeConnections(toRemove, null);
+	}
+
+	/**
+	 * Runs the given task, and removes all connections it removes through {@link #removeConnection(Connection)} or
+	 * {@link #removeConnections(Collection)} in one batch once it is done. Until then the connections are still part
+	 * of the network. Nested calls join the outermost batch.
+	 */
+	public void batchRemovals(Runnable task)
+	{
+		if(batchedRemovals!=null)
+		{
+			task.run();
+			return;
+		}
+		batchedRemovals = new LinkedHashSet<>();
+		Set<Connection> toRemove;
+		try
+		{
+			task.run();
+		} finally
+		{
+			toRemove = batchedRemovals;
+			batchedRemovals = null;
+		}
+		if(!toRemove.isEmpty())
+			removeConnections(toRemove);
+	}
+
+	private void removeConnections(Collection<Connection> toRemove, @Nullable Consumer<Connection> beforeRemoval)
+	{
+		if(batchedRemovals!=null)
+		{
+			for(Connection c : toRemove)
+			{
+				if(beforeRemoval!=null)
+					beforeRemoval.accept(c);
+				batchedRemovals.add(c);
+			}
+			return;
+		}
 		processQueuedLoads();
-		collisionData.removeConnection(c);
-		LocalWireNetwork oldNet = getNullableLocalNet(c.getEndA());
-		if(oldNet==null)
+		// A connection listed twice would otherwise be removed from its net twice
+		Set<Connection> uniqueToRemove = new LinkedHashSet<>(toRemove);
+		List<Connection> removed = new ArrayList<>(uniqueToRemove.size());
+		for(Connection c : uniqueToRemove)
 		{
-			Preconditions.checkState(
-					getNullableLocalNet(c.getEndB())==null,
-					"Found net at %s but not at %s while removing connection %s",
-					c.getEndB(),
-					c.getEndA(),
-					c
+			if(beforeRemoval!=null)
+				beforeRemoval.accept(c);
+			collisionData.removeConnection(c);
+			LocalWireNetwork oldNet = getNullableLocalNet(c.getEndA());
+			if(oldNet==null)
+			{
+				Preconditions.checkState(
+						getNullableLocalNet(c.getEndB())==null,
+						"Found net at %s but not at %s while removing connection %s",
+						c.getEndB(),
+						c.getEndA(),
+						c
+				);
+				continue;
+			}
+			Preconditions.checkNotNull(
+					oldNet.getConnector(c.getEndB()),
+					"Removing connection %s from net %s, but does not have connector for %s",
+					c, oldNet, c.getEndB()
 			);
+			oldNet.removeConnection(c);
+			removed.add(c);
+		}
+		if(removed.isEmpty())
 			return;
+		splitAfterRemoval(removed);
+		for(Connection c : removed)
+		{
+			syncManager.onConnectionRemoved(c);
+			if(journal!=null)
+				journal.connectionRemoved(c);
 		}
-		Preconditions.checkNotNull(
-				oldNet.getConnector(c.getEndB()),
-				"Removing connection %s from net %s, but does not have connector for %s",
-				c, oldNet, c.getEndB()
-		);
-		oldNet.removeConnection(c);
-		splitNet(oldNet);
-		syncManager.onConnectionRemoved(c);
 		setDirty();
 	}
 
+	/**
+	 * Every component of a net that was split by removing the given connections contains an end of one of them. So
+	 * the nets are correct once any two ends that share a net are connected: each end in turn is compared to all
+	 * others still in its net, and whichever side is not connected to it is moved into a new net.
+	 */
+	private void splitAfterRemoval(List<Connection> removed)
+	{
+		// Linked to keep the order of the resulting splits deterministic
+		Set<ConnectionPoint> toCheck = new LinkedHashSet<>();
+		for(Connection c : removed)
+		{
+			toCheck.add(c.getEndA());
+			toCheck.add(c.getEndB());
+		}
+		while(!toCheck.isEmpty())
+		{
+			Iterator<ConnectionPoint> it = toCheck.iterator();
+			ConnectionPoint root = it.next();
+			it.remove();
+			while(it.hasNext())
+			{
+				ConnectionPoint other = it.next();
+				// The net of root changes if its side is the one that is split off
+				LocalWireNetwork net = getNullableLocalNet(root);
+				if(net==null)
+					break;
+				if(net!=getNullableLocalNet(other))
+					continue;
+				LocalWireNetwork detached = net.splitAfterRemoval(root, other, this);
+				if(detached==null)
+					// Connected to root, so it is in the same component as root for the rest of this batch
+					it.remove();
+				else
+					for(ConnectionPoint p : detached.getConnectionPoints())
+						putLocalNet(p, detached);
+			}
+		}
+	}
+
 	public void removeAndDropConnection(Connection c, BlockPos dropAt, Level world)
 	{
 		removeConnection(c);
@@ -225,36 +383,145 @@ public class GlobalWireNetwork extends SavedData implements IWorldTickable
 		localNetSet.forEach(LocalWireNetwork::setInvalid);
 		localNetSet.clear();
 		localNetsByPos.clear();
-		ListTag locals = nbt.getList("locals", Tag.TAG_COMPOUND);
-		for(Tag b : locals)
-		{
-			CompoundTag subnet = (CompoundTag)b;
-			LocalWireNetwork localNet = new LocalWireNetwork(subnet, this);
-			WireLogger.logger.info("Loading net {}", localNet);
-			for(ConnectionPoint p : localNet.getConnectionPoints())
-				putLocalNet(p, localNet);
+		connectionPointsByChunk.clear();
+		tickingNets.clear();
+		pendingNets.clear();
+		pendingNetsByChunk.clear();
+		backgroundJoin = null;
+		journalGeneration = nbt.getLong("journalGeneration");
+		if(nbt.contains("nets", Tag.TAG_BYTE_ARRAY))
+		{
+			int format = nbt.getInt("format");
+			Preconditions.checkState(
+					format <= BinaryNetFormat.VERSION,
+					"Wire network was saved in format %s, but only formats up to %s are supported",
+					format, BinaryNetFormat.VERSION
+			);
+			BinaryNetFormat.SavedNets saved = BinaryNetFormat.split(nbt.getByteArray("nets"), format);
+			// Nets that are not loaded are saved again as they are, which is only possible if they use the current
+			// format and wire type IDs
+			if(LAZY_LOADING.get().getAsBoolean()&&saved.canSaveUnchanged())
+			{
+				// Only find out which chunks each net touches, nets are decoded once one of those chunks is queried
+				for(byte[] encoded : saved.nets())
+				{
+					PendingNet pending = new PendingNet(encoded, BinaryNetFormat.readChunks(encoded, saved), saved);
+					pendingNets.add(pending);
+					for(long chunk : pending.chunks())
+						pendingNetsByChunk.computeIfAbsent(chunk, $ -> new ReferenceArraySet<>()).add(pending);
+				}
+				queuedLoads.clear();
+				return;
+			}
+			// Decoding only touches the new net, so independent nets are decoded in parallel. Publishing them and
+			// creating their handlers happens on this thread, once all nets are known
+			List<LocalWireNetwork> loaded = saved.nets()
+					.parallelStream()
+					.map(encoded -> BinaryNetFormat.decode(encoded, saved, this))
+					.toList();
+			for(LocalWireNetwork localNet : loaded)
+				addLoadedNet(localNet);
+			for(LocalWireNetwork localNet : loaded)
+				if(localNet.isValid())
+					localNet.initHandlers();
+		}
+		else
+		{
+			// Old NBT layout, this is converted to the binary format on the next save
+			ListTag locals = nbt.getList("locals", Tag.TAG_COMPOUND);
+			for(Tag b : locals)
+				addLoadedNet(new LocalWireNetwork((CompoundTag)b, this));
 		}
 		queuedLoads.clear();
 	}
 
+	private void materializeAt(int blockX, int blockZ)
+	{
+		if(!pendingNetsByChunk.isEmpty())
+			materializeChunk(ChunkPos.asLong(blockX >> 4, blockZ >> 4));
+	}
+
+	private void materializeChunk(long chunkKey)
+	{
+		Set<PendingNet> inChunk = pendingNetsByChunk.get(chunkKey);
+		if(inChunk!=null)
+			for(PendingNet pending : inChunk.toArray(PendingNet[]::new))
+				materialize(pending);
+	}
+
+	private void materializeAll()
+	{
+		for(PendingNet pending : pendingNets.toArray(PendingNet[]::new))
+			materialize(pending);
+	}
+
+	private void materialize(PendingNet pending)
+	{
+		// Handlers created below may query the network again, so remove the net from the pending sets first
+		if(!pendingNets.remove(pending))
+			return;
+		for(long chunk : pending.chunks())
+		{
+			Set<PendingNet> inChunk = pendingNetsByChunk.get(chunk);
+			if(inChunk!=null&&inChunk.remove(pending)&&inChunk.isEmpty())
+				pendingNetsByChunk.remove(chunk);
+		}
+		LocalWireNetwork localNet = BinaryNetFormat.decode(pending.encoded(), pending.source(), this);
+		addLoadedNet(localNet);
+		if(localNet.isValid())
+			localNet.initHandlers();
+	}
+
+	private void addLoadedNet(LocalWireNetwork localNet)
+	{
+		WireLogger.logger.info("Loading net {}", localNet);
+		for(ConnectionPoint p : localNet.getConnectionPoints())
+			putLocalNet(p, localNet);
+	}
+
 	@Override
 	public CompoundTag save(CompoundTag savedNBT, Provider provider)
 	{
-		ListTag locals = new ListTag();
-		for(LocalWireNetwork local : localNetSet)
-			locals.add(local.writeToNBT());
-		savedNBT.put("locals", locals);
+		byte[] joined;
+		if(backgroundJoin!=null&&backgroundJoin.matches(localNetSet, pendingNets))
+			joined = backgroundJoin.joined().join();
+		else
+		{
+			// Local nets cache their encoded form, so only nets that changed since the last save are encoded again
+			List<byte[]> encoded = new ArrayList<>(localNetSet.size());
+			for(LocalWireNetwork local : localNetSet)
+				encoded.add(local.writeToBytes());
+			// Nets that were never loaded are written back unchanged
+			for(PendingNet pending : pendingNets)
+				encoded.add(pending.encoded());
+			joined = BinaryNetFormat.join(encoded);
+		}
+		savedNBT.putInt("format", BinaryNetFormat.VERSION);
+		savedNBT.putByteArray("nets", joined);
+		// Everything journaled so far is contained in this save, so later changes go to a new journal. The generation
+		// is increased even without a journal, so journals from before that are never replayed over this save
+		++journalGeneration;
+		if(journal!=null&&!journal.rotate(journalGeneration))
+			journal = null;
+		savedNBT.putLong("journalGeneration", journalGeneration);
 		return savedNBT;
 	}
 
 	public LocalWireNetwork getLocalNet(BlockPos pos)
 	{
-		return getLocalNet(new ConnectionPoint(pos, 0));
+		processQueuedLoads();
+		materializeAt(pos.getX(), pos.getZ());
+		LocalWireNetwork ret = localNetsByPos.get(pos, 0);
+		if(ret==null)
+			return getLocalNet(new ConnectionPoint(pos, 0));
+		Preconditions.checkState(ret.isValid(pos, 0), "%s is not a valid net", ret);
+		return ret;
 	}
 
 	public LocalWireNetwork getLocalNet(ConnectionPoint pos)
 	{
 		processQueuedLoads();
+		materializeAt(pos.getX(), pos.getZ());
 		LocalWireNetwork ret = localNetsByPos.computeIfAbsent(pos, p -> {
 			LocalWireNetwork newNet = new LocalWireNetwork(this);
 			IImmersiveConnectable proxy = proxyProvider.create(
@@ -264,6 +531,7 @@ public class GlobalWireNetwork extends SavedData implements IWorldTickable
 			);
 			newNet.addConnector(pos, proxy, this);
 			localNetSet.add(newNet);
+			addToChunkIndex(p);
 			return newNet;
 		});
 		Preconditions.checkState(ret.isValid(pos), "%s is not a valid net", ret);
@@ -272,12 +540,18 @@ public class GlobalWireNetwork extends SavedData implements IWorldTickable
 
 	public LocalWireNetwork getNullableLocalNet(BlockPos pos)
 	{
-		return getNullableLocalNet(new ConnectionPoint(pos, 0));
+		processQueuedLoads();
+		materializeAt(pos.getX(), pos.getZ());
+		LocalWireNetwork ret = localNetsByPos.get(pos, 0);
+		if(ret!=null)
+			Preconditions.checkState(ret.isValid(pos, 0), "%s is not valid for position %s", ret, pos);
+		return ret;
 	}
 
 	public LocalWireNetwork getNullableLocalNet(ConnectionPoint pos)
 	{
 		processQueuedLoads();
+		materializeAt(pos.getX(), pos.getZ());
 		LocalWireNetwork ret = localNetsByPos.get(pos);
 		if(ret!=null)
 			Preconditions.checkState(ret.isValid(pos), "%s is not valid for position %s", ret, pos);
@@ -307,6 +581,8 @@ public class GlobalWireNetwork extends SavedData implements IWorldTickable
 			else
 				splitNet(net);
 		}
+		if(journal!=null&&!netsToRemoveFrom.isEmpty())
+			journal.connectorRemoved(iicPos);
 		validateNextTick = true;
 	}
 
@@ -439,6 +715,10 @@ public class GlobalWireNetwork extends SavedData implements IWorldTickable
 	}
 
 	private boolean validateNextTick = false;
+	private int ticksSinceBackgroundEncode = 0;
+	// Save data joined by startBackgroundJoin, only valid while the nets it was created from are unchanged
+	@Nullable
+	private BackgroundJoin backgroundJoin;
 
 	@Override
 	public void update(Level world)
@@ -451,12 +731,63 @@ public class GlobalWireNetwork extends SavedData implements IWorldTickable
 		processQueuedLoads();
 		if(world.isClientSide())
 			return;
-		// Copy local nets before looping. If wires burn localNetSet will be modified, causing crashes (not CME because
-		// FastUtil doesn't check for those, but random NPEs like in #5374 instead)
-		for(LocalWireNetwork net : localNetSet.toArray(LocalWireNetwork[]::new))
-			net.update(world);
+		// Copy ticking nets before looping. If wires burn tickingNets and localNetSet will be modified, causing crashes
+		// (not CME because FastUtil doesn't check for those, but random NPEs like in #5374 instead). Nets invalidated
+		// by an earlier net in the same tick are skipped, and nets created during the tick are first ticked next tick
+		LocalWireNetwork[] toTick = tickingNets.toArray(LocalWireNetwork[]::new);
+		if(PARALLEL_TICKING.get().getAsBoolean())
+			ParallelNetTicker.tick(toTick, world, CHECK_PARALLEL_DETERMINISM.get().getAsBoolean());
+		else
+			for(LocalWireNetwork net : toTick)
+				if(net.needsTicking())
+					net.update(world);
+		tickingNets.removeIf(net -> !net.needsTicking());
+		// Encode changed nets and join them ahead of time, so saving usually only has to use the result
+		if(++ticksSinceBackgroundEncode >= BACKGROUND_ENCODE_INTERVAL&&ENCODE_IN_BACKGROUND.get().getAsBoolean())
+		{
+			ticksSinceBackgroundEncode = 0;
+			for(LocalWireNetwork net : localNetSet)
+				net.encodeInBackground(Util.backgroundExecutor());
+			startBackgroundJoin(Util.backgroundExecutor());
+		}
 		if(SANITIZE_CONNECTIONS.get().getAsBoolean())
 			NetworkSanitizer.tick(world, this);
+		if(journal!=null)
+			journal.flush();
+	}
+
+	/**
+	 * Joins the encoded nets into the save data on the given executor, if every net already has an encoding of its
+	 * current version (or one that is being created). Saving uses the result as long as no net changed since, so the
+	 * server thread does not have to copy all nets into one array. Otherwise saving joins them itself.
+	 */
+	private void startBackgroundJoin(Executor executor)
+	{
+		if(backgroundJoin!=null&&backgroundJoin.matches(localNetSet, pendingNets))
+			return;
+		backgroundJoin = null;
+		LocalWireNetwork[] nets = localNetSet.toArray(LocalWireNetwork[]::new);
+		int[] versions = new int[nets.length];
+		List<CompletableFuture<byte[]>> parts = new ArrayList<>(nets.length);
+		for(int i = 0; i < nets.length; ++i)
+		{
+			CompletableFuture<byte[]> part = nets[i].getCurrentEncoding();
+			if(part==null)
+				return;
+			versions[i] = nets[i].getVersion();
+			parts.add(part);
+		}
+		PendingNet[] pending = pendingNets.toArray(PendingNet[]::new);
+		CompletableFuture<byte[]> joined = CompletableFuture.allOf(parts.toArray(CompletableFuture[]::new))
+				.thenApplyAsync($ -> {
+					List<byte[]> encoded = new ArrayList<>(parts.size()+pending.length);
+					for(CompletableFuture<byte[]> part : parts)
+						encoded.add(part.join());
+					for(PendingNet net : pending)
+						encoded.add(net.encoded());
+					return BinaryNetFormat.join(encoded);
+				}, executor);
+		backgroundJoin = new BackgroundJoin(nets, versions, pending, joined);
 	}
 
 	boolean validating = false;
@@ -541,14 +872,23 @@ public class GlobalWireNetwork extends SavedData implements IWorldTickable
 		return collisionData;
 	}
 
+	/**
+	 * @return the wires synced to the client, used for rendering and raytracing. Only available on the client
+	 */
+	public ClientWireStore getClientWires()
+	{
+		Preconditions.checkState(clientWires!=null, "Client wire store requested on the server");
+		return clientWires;
+	}
+
 	public Collection<ConnectionPoint> getAllConnectorsIn(ChunkPos pos)
 	{
-		//TODO better way of finding all connectors in a chunk
-		Collection<ConnectionPoint> ret = new ArrayList<>();
-		for(ConnectionPoint cp : localNetsByPos.keySet())
-			if(pos.equals(new ChunkPos(cp.position())))
-				ret.add(cp);
-		return ret;
+		if(!pendingNetsByChunk.isEmpty())
+			materializeChunk(pos.toLong());
+		Set<ConnectionPoint> inChunk = connectionPointsByChunk.get(pos.toLong());
+		if(inChunk==null)
+			return new ArrayList<>();
+		return new ArrayList<>(inChunk);
 	}
 
 	// Internal use only, for network sanitization
@@ -562,13 +902,75 @@ public class GlobalWireNetwork extends SavedData implements IWorldTickable
 	void removeConnector(BlockPos pos)
 	{
 		Collection<ConnectionPoint> cpsAtInvalid = new ArrayList<>();
-		for(ConnectionPoint cp : localNetsByPos.keySet())
+		for(ConnectionPoint cp : getAllConnectorsIn(new ChunkPos(pos)))
 			if(cp.position().equals(pos))
 				cpsAtInvalid.add(cp);
 		for(ConnectionPoint toRemove : cpsAtInvalid)
 			removeCP(toRemove);
 	}
 
+	/**
+	 * Replays the changes journaled since the last save, and journals all further changes. Only the first call on a
+	 * network has an effect
+	 */
+	@Internal
+	public void openJournal(Path file)
+	{
+		if(journalOpened)
+			return;
+		journalOpened = true;
+		if(!JOURNAL_CHANGES.get().getAsBoolean())
+			return;
+		journal = WireJournal.open(file, journalGeneration, this);
+		if(journal!=null)
+			journalGeneration = journal.getGeneration();
+	}
+
+	@Internal
+	public void closeJournal()
+	{
+		if(journal!=null)
+			journal.close();
+		journal = null;
+	}
+
+	void replayConnectionAdded(Connection conn)
+	{
+		if(findConnection(conn)==null)
+			addConnection(conn);
+	}
+
+	void replayConnectionRemoved(Connection conn)
+	{
+		Connection existing = findConnection(conn);
+		if(existing!=null)
+			removeConnection(existing);
+	}
+
+	void replayEndpointsChanged(Connection conn)
+	{
+		Connection existing = findConnection(conn);
+		if(existing==null)
+			return;
+		collisionData.removeConnection(existing);
+		existing.resetCatenaryData(conn.getEndAOffset(), conn.getEndBOffset());
+		getLocalNet(existing.getEndA()).markChanged();
+		collisionData.addConnection(existing);
+		setDirty();
+	}
+
+	@Nullable
+	private Connection findConnection(Connection conn)
+	{
+		LocalWireNetwork local = getNullableLocalNet(conn.getEndA());
+		if(local==null)
+			return null;
+		for(Connection existing : local.getConnections(conn.getEndA()))
+			if(existing.equals(conn))
+				return existing;
+		return null;
+	}
+
 	public void updateCatenaryData(Connection conn)
 	{
 		processQueuedLoads();
@@ -579,8 +981,11 @@ public class GlobalWireNetwork extends SavedData implements IWorldTickable
 		Vec3 newOffsetA = iicA.getConnectionOffset(conn.getEndA(), conn.getEndB(), conn.type);
 		Vec3 newOffsetB = iicB.getConnectionOffset(conn.getEndB(), conn.getEndA(), conn.type);
 		conn.resetCatenaryData(newOffsetA, newOffsetB);
+		local.markChanged();
 		collisionData.addConnection(conn);
 		syncManager.onConnectionEndpointsChanged(conn);
+		if(journal!=null)
+			journal.endpointsChanged(conn);
 		setDirty();
 	}
 
@@ -595,11 +1000,36 @@ public class GlobalWireNetwork extends SavedData implements IWorldTickable
 		}
 		if(net!=null)
 		{
-			localNetsByPos.put(cp, net);
+			if(localNetsByPos.put(cp, net)==null)
+				addToChunkIndex(cp);
 			localNetSet.add(net);
 		}
-		else
-			localNetsByPos.remove(cp);
+		else if(localNetsByPos.remove(cp)!=null)
+			removeFromChunkIndex(cp);
+	}
+
+	private void addToChunkIndex(ConnectionPoint cp)
+	{
+		connectionPointsByChunk.computeIfAbsent(getChunkKey(cp), $ -> new ObjectOpenHashSet<>()).add(cp);
+	}
+
+	private void removeFromChunkIndex(ConnectionPoint cp)
+	{
+		final long chunkKey = getChunkKey(cp);
+		Set<ConnectionPoint> inChunk = connectionPointsByChunk.get(chunkKey);
+		if(inChunk!=null&&inChunk.remove(cp)&&inChunk.isEmpty())
+			connectionPointsByChunk.remove(chunkKey);
+	}
+
+	private static long getChunkKey(ConnectionPoint cp)
+	{
+		return ChunkPos.asLong(cp.getX() >> 4, cp.getZ() >> 4);
+	}
+
+	// Called by local nets when they gain tickable handlers or future tasks
+	void scheduleTick(LocalWireNetwork net)
+	{
+		tickingNets.add(net);
 	}
 
 	public IImmersiveConnectable getExistingConnector(ConnectionPoint cp)
@@ -616,6 +1046,39 @@ public class GlobalWireNetwork extends SavedData implements IWorldTickable
 	
 	public Collection<LocalWireNetwork> getLocalNets()
 	{
+		materializeAll();
 		return localNetSet;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * A saved net that has not been decoded yet
+	 *
+	 * @param chunks packed positions of the chunks containing points of the net
+	 * @param source the save the net was read from, for the wire types its IDs refer to
+	 */
+	private record PendingNet(byte[] encoded, long[] chunks, BinaryNetFormat.SavedNets source)
+	{
+	}
+
+	/**
+	 * Save data joined in the background from the given nets at the given versions and the given pending nets
+	 */
+	private record BackgroundJoin(
+			LocalWireNetwork[] nets, int[] versions, PendingNet[] pending, CompletableFuture<byte[]> joined
+	)
+	{
+		boolean matches(Set<LocalWireNetwork> currentNets, Set<PendingNet> currentPending)
+		{
+			if(currentNets.size()!=nets.length||currentPending.size()!=pending.length)
+				return false;
+			// Nets are removed from the set once invalid, so these are the same nets if all of them are still present
+			for(int i = 0; i < nets.length; ++i)
+				if(!currentNets.contains(nets[i])||nets[i].getVersion()!=versions[i])
+					return false;
+			for(PendingNet net : pending)
+				if(!currentPending.contains(net))
+					return false;
+			return true;
+		}
+	}
+}
@@ -15,6 +15,9 @@ import com.miniverse.modularinfrastructure.api.wires.localhandlers.LocalNetworkH
 import com.miniverse.modularinfrastructure.api.wires.proxy.IICProxyProvider;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.*;
+import com.miniverse.modularinfrastructure.api.wires.utils.ConnectionPointMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import it.unimi.dsi.fastutil.objects.Object2ObjectArrayMap;
 import net.minecraft.core.BlockPos;
 import net.minecraft.nbt.CompoundTag;
@@ -26,21 +29,35 @@ import net.minecraft.world.level.Level;
 import javax.annotation.Nullable;
 import java.util.*;
 import java.util.Map.Entry;
-import java.util.function.Supplier;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public class LocalWireNetwork implements IWorldTickable
 {
 	private final IICProxyProvider proxyProvider;
-	private final Map<ConnectionPoint, Collection<Connection>> connections = new HashMap<>();
-	private final Map<BlockPos, IImmersiveConnectable> connectors = new HashMap<>();
+	private final GlobalWireNetwork globalNet;
+	private final ConnectionPointMap<Collection<Connection>> connections = new ConnectionPointMap<>();
+	// Keyed by BlockPos#asLong
+	private final Long2ObjectOpenHashMap<IImmersiveConnectable> connectors = new Long2ObjectOpenHashMap<>();
 	//This is an array map since it will generally be tiny, and needs to be fast at those sizes
 	private final Map<ResourceLocation, LocalNetworkHandler> handlers = new Object2ObjectArrayMap<>();
 	//package private to allow GlobalWireNetwork#validate to read this
 	//One user is either one ConnectionPoint in the net (NOT a BlockPos) or one connection
 	final Map<ResourceLocation, Multiset<ILocalHandlerProvider>> handlerUsers = new HashMap<>();
 	private List<Runnable> runNextTick = new ArrayList<>();
+	// Rebuilt whenever the handlers change, so handlers changing during a tick do not affect the running loop
+	private IWorldTickable[] tickableHandlers = new IWorldTickable[0];
 	private boolean isValid = true;
 	private int version = 0;
+	// Result of the last writeToBytes call and the version it was created at
+	@Nullable
+	private byte[] encoded;
+	private int encodedVersion;
+	// Background encoding started by encodeInBackground
+	@Nullable
+	private CompletableFuture<byte[]> pendingEncode;
+	private int pendingEncodeVersion;
+	private int lastCheckedVersion = -1;
 
 	public LocalWireNetwork(CompoundTag subnet, GlobalWireNetwork globalNet)
 	{
@@ -59,7 +76,7 @@ public class LocalWireNetwork implements IWorldTickable
 		for(Tag b : wires)
 		{
 			Connection wire = new Connection((CompoundTag)b);
-			if(connectors.containsKey(wire.getEndA().position())&&connectors.containsKey(wire.getEndB().position()))
+			if(connectors.containsKey(wire.getEndA().position().asLong())&&connectors.containsKey(wire.getEndB().position().asLong()))
 				addConnection(wire, globalNet);
 			else
 				WireLogger.logger.error("Wire from {} to {}, but connector points are {}", wire.getEndA(), wire.getEndB(), connectors);
@@ -69,6 +86,69 @@ public class LocalWireNetwork implements IWorldTickable
 	public LocalWireNetwork(GlobalWireNetwork globalNet)
 	{
 		this.proxyProvider = globalNet.getProxyProvider();
+		this.globalNet = globalNet;
+	}
+
+	/**
+	 * @return this net in the format of {@link BinaryNetFormat}. The result is cached until the version changes, so it
+	 * must not be modified
+	 */
+	byte[] writeToBytes()
+	{
+		if(encoded==null||encodedVersion!=version)
+		{
+			if(pendingEncode!=null&&pendingEncodeVersion==version)
+				encoded = pendingEncode.join();
+			else
+				encoded = BinaryNetFormat.encode(BinaryNetFormat.snapshot(this, proxyProvider));
+			encodedVersion = version;
+			pendingEncode = null;
+		}
+		return encoded;
+	}
+
+	// Used when loading, the data a net was decoded from is a valid encoding of it
+	void setEncoded(byte[] data)
+	{
+		encoded = data;
+		encodedVersion = version;
+	}
+
+	/**
+	 * Server thread. Starts encoding this net on the given executor if it has changed since it was last encoded, but
+	 * has not changed since the previous call. The snapshot is taken immediately, so later changes do not affect the
+	 * result, and the result is only used by {@link #writeToBytes()} if the version still matches.
+	 */
+	void encodeInBackground(Executor executor)
+	{
+		boolean unchangedSinceLastCheck = lastCheckedVersion==version;
+		lastCheckedVersion = version;
+		if(!unchangedSinceLastCheck||!isValid)
+			return;
+		if((encoded!=null&&encodedVersion==version)||(pendingEncode!=null&&pendingEncodeVersion==version))
+			return;
+		BinaryNetFormat.Snapshot snapshot = BinaryNetFormat.snapshot(this, proxyProvider);
+		pendingEncode = CompletableFuture.supplyAsync(() -> BinaryNetFormat.encode(snapshot), executor);
+		pendingEncodeVersion = version;
+	}
+
+	/**
+	 * @return the encoding of the current version if it exists or is being created in the background, null if it has
+	 * not been started yet
+	 */
+	@Nullable
+	CompletableFuture<byte[]> getCurrentEncoding()
+	{
+		if(encoded!=null&&encodedVersion==version)
+			return CompletableFuture.completedFuture(encoded);
+		if(pendingEncode!=null&&pendingEncodeVersion==version)
+			return pendingEncode;
+		return null;
+	}
+
+	int getVersion()
+	{
+		return version;
 	}
 
 	public CompoundTag writeToNBT()
@@ -84,9 +164,9 @@ public class LocalWireNetwork implements IWorldTickable
 		for(ConnectionPoint cp : connections.keySet())
 			connsByBlock.put(cp.position(), cp);
 		ListTag proxies = new ListTag();
-		for(BlockPos p : connectors.keySet())
+		for(IImmersiveConnectable iic : connectors.values())
 		{
-			IImmersiveConnectable iic = connectors.get(p);
+			BlockPos p = iic.getPosition();
 			IImmersiveConnectable proxy = null;
 			if(iic.isProxy())
 				proxy = iic;
@@ -113,18 +193,26 @@ public class LocalWireNetwork implements IWorldTickable
 	 */
 	public Collection<BlockPos> getConnectors()
 	{
-		return Collections.unmodifiableCollection(connectors.keySet());
+		return Collections.unmodifiableCollection(Collections2.transform(connectors.values(), IImmersiveConnectable::getPosition));
+	}
+
+	/**
+	 * @return the packed positions (see {@link BlockPos#asLong()}) of all connectors, must not be modified
+	 */
+	LongSet getConnectorPositions()
+	{
+		return connectors.keySet();
 	}
 
 	public IImmersiveConnectable getConnector(BlockPos pos)
 	{
-		assert connectors.containsKey(pos);
-		return connectors.get(pos);
+		assert connectors.containsKey(pos.asLong());
+		return connectors.get(pos.asLong());
 	}
 
 	public Collection<Connection> getConnections(BlockPos at)
 	{
-		return getConnections(new ConnectionPoint(at, 0));
+		return wrapConnections(connections.get(at, 0));
 	}
 
 	/*
@@ -132,7 +220,11 @@ public class LocalWireNetwork implements IWorldTickable
 	 */
 	public Collection<Connection> getConnections(ConnectionPoint at)
 	{
-		Collection<Connection> conns = connections.get(at);
+		return wrapConnections(connections.get(at));
+	}
+
+	private static Collection<Connection> wrapConnections(@Nullable Collection<Connection> conns)
+	{
 		if(conns!=null)
 			return Collections.unmodifiableCollection(conns);
 		else
@@ -151,7 +243,7 @@ public class LocalWireNetwork implements IWorldTickable
 			);
 		}
 		connections.put(cp, new ArrayList<>());
-		if(!connectors.containsKey(cp.position()))
+		if(!connectors.containsKey(cp.position().asLong()))
 			loadConnector(cp.position(), iic, true, globalNet);
 		else
 		{
@@ -168,7 +260,7 @@ public class LocalWireNetwork implements IWorldTickable
 	void loadConnector(BlockPos p, IImmersiveConnectable iic, boolean adding, GlobalWireNetwork globalNet)
 	{
 		++version;
-		IImmersiveConnectable existingIIC = connectors.get(p);
+		IImmersiveConnectable existingIIC = connectors.get(p.asLong());
 		if(adding)
 			Preconditions.checkState(
 					existingIIC==null,
@@ -185,7 +277,7 @@ public class LocalWireNetwork implements IWorldTickable
 			);
 			unloadConnector(p, existingIIC);
 		}
-		connectors.put(p, iic);
+		connectors.put(p.asLong(), iic);
 		// Always add requested handlers for the connector, not just when it has connections
 		addRequestedHandlers(iic, globalNet);
 		
@@ -200,7 +292,7 @@ public class LocalWireNetwork implements IWorldTickable
 	boolean unloadConnector(BlockPos pos, @Nullable IImmersiveConnectable iicToRemove)
 	{
 		++version;
-		IImmersiveConnectable existingIIC = connectors.get(pos);
+		IImmersiveConnectable existingIIC = connectors.get(pos.asLong());
 		if(iicToRemove!=existingIIC)
 		{
 			// Out of order case, same as in loadConnector
@@ -220,7 +312,7 @@ public class LocalWireNetwork implements IWorldTickable
 				"Unloading connector at %s in %s, but %s is already a proxy",
 				pos, this, existingIIC
 		);
-		connectors.put(pos, proxyProvider.createFor(existingIIC));
+		connectors.put(pos.asLong(), proxyProvider.createFor(existingIIC));
 		for(LocalNetworkHandler h : handlers.values())
 			h.onConnectorUnloaded(pos, existingIIC);
 		for(ConnectionPoint cp : existingIIC.getConnectionPoints())
@@ -229,27 +321,33 @@ public class LocalWireNetwork implements IWorldTickable
 		return true;
 	}
 
-	LocalWireNetwork merge(LocalWireNetwork other, Supplier<LocalWireNetwork> createNewNet)
+	/**
+	 * Moves all connectors, connections and handlers of the other net into this one. The other net must be discarded
+	 * afterwards. The work done is proportional to the size of the other net, so this should be called on the larger
+	 * of the two nets.
+	 */
+	void absorb(LocalWireNetwork other)
 	{
-		LocalWireNetwork result = createNewNet.get();
-		for(LocalWireNetwork net : new LocalWireNetwork[]{this, other})
-		{
-			result.connectors.putAll(net.connectors);
-			result.connections.putAll(net.connections);
-		}
-		result.handlers.putAll(other.handlers);
-		other.handlerUsers.forEach((rl, h) -> result.handlerUsers.put(rl, HashMultiset.create(h)));
-		for(Entry<ResourceLocation, LocalNetworkHandler> loc : handlers.entrySet())
+		++version;
+		connectors.putAll(other.connectors);
+		connections.putAll(other.connections);
+		for(Entry<ResourceLocation, LocalNetworkHandler> loc : other.handlers.entrySet())
 		{
-			result.handlers.merge(loc.getKey(), loc.getValue(), LocalNetworkHandler::merge);
-			result.handlerUsers.merge(loc.getKey(), HashMultiset.create(handlerUsers.get(loc.getKey())), (a, b) -> {
-				a.addAll(b);
-				return a;
-			});
+			LocalNetworkHandler existing = handlers.get(loc.getKey());
+			LocalNetworkHandler merged = existing==null?loc.getValue(): existing.merge(loc.getValue());
+			handlers.put(loc.getKey(), merged);
+			// Handlers that stayed the same object already belong to this net
+			if(merged!=existing)
+				merged.setLocalNet(this);
 		}
-		for(Entry<ResourceLocation, LocalNetworkHandler> loc : result.handlers.entrySet())
-			loc.getValue().setLocalNet(result);
-		return result;
+		other.handlerUsers.forEach((rl, users) -> getProvidersFor(rl).addAll(users));
+		runNextTick.addAll(other.runNextTick);
+		onHandlersChanged();
+	}
+
+	int size()
+	{
+		return connections.size();
 	}
 
 	void removeConnection(Connection c)
@@ -266,7 +364,7 @@ public class LocalWireNetwork implements IWorldTickable
 		}
 		for(ConnectionPoint end : new ConnectionPoint[]{c.getEndA(), c.getEndB()})
 		{
-			IImmersiveConnectable connector = connectors.get(end.position());
+			IImmersiveConnectable connector = connectors.get(end.position().asLong());
 			if(connector!=null)
 				connector.removeCable(c, end);
 		}
@@ -278,7 +376,7 @@ public class LocalWireNetwork implements IWorldTickable
 	void removeConnector(BlockPos p)
 	{
 		++version;
-		IImmersiveConnectable iic = connectors.get(p);
+		IImmersiveConnectable iic = connectors.get(p.asLong());
 		if(iic==null)
 		{
 			for(ConnectionPoint point : getConnectionPoints())
@@ -301,7 +399,7 @@ public class LocalWireNetwork implements IWorldTickable
 				}
 				connections.remove(point);
 			}
-		connectors.remove(p);
+		connectors.remove(p.asLong());
 		for(LocalNetworkHandler h : handlers.values())
 			h.onConnectorRemoved(p, iic);
 	}
@@ -309,9 +407,9 @@ public class LocalWireNetwork implements IWorldTickable
 	void addConnection(Connection conn, GlobalWireNetwork globalNet)
 	{
 		++version;
-		IImmersiveConnectable connA = connectors.get(conn.getEndA().position());
+		IImmersiveConnectable connA = connectors.get(conn.getEndA().position().asLong());
 		Preconditions.checkNotNull(connA, "No connector at %s", conn.getEndA().position());
-		IImmersiveConnectable connB = connectors.get(conn.getEndB().position());
+		IImmersiveConnectable connB = connectors.get(conn.getEndB().position().asLong());
 		Preconditions.checkNotNull(connB, "No connector at %s", conn.getEndB().position());
 		if(connections.get(conn.getEndA()).stream().anyMatch(c -> c.getOtherEnd(conn.getEndA()).equals(conn.getEndB())))
 		{
@@ -350,6 +448,7 @@ public class LocalWireNetwork implements IWorldTickable
 				WireLogger.logger.info("Removing: {}", loc);
 				handlers.remove(loc);
 				handlerUsers.remove(loc);
+				onHandlersChanged();
 			}
 		}
 	}
@@ -360,11 +459,48 @@ public class LocalWireNetwork implements IWorldTickable
 		{
 			getProvidersFor(loc).add(provider);
 			if(!handlers.containsKey(loc))
+			{
 				handlers.put(loc, LocalNetworkHandler.createHandler(loc, this, global));
+				onHandlersChanged();
+			}
 			WireLogger.logger.info("Adding handler {} for {}", loc, provider);
 		}
 	}
 
+	private void onHandlersChanged()
+	{
+		List<IWorldTickable> tickable = new ArrayList<>();
+		for(LocalNetworkHandler handler : handlers.values())
+			if(handler instanceof IWorldTickable tickableHandler)
+				tickable.add(tickableHandler);
+		tickableHandlers = tickable.toArray(new IWorldTickable[0]);
+		if(needsTicking())
+			globalNet.scheduleTick(this);
+	}
+
+	/**
+	 * Creates the handlers of a net made by {@link Builder} and notifies them about its contents, as if the connectors
+	 * and connections had been added one by one. Server thread, after the net has been added to the global net.
+	 */
+	void initHandlers()
+	{
+		for(ConnectionPoint cp : connections.keySet())
+			addRequestedHandlers(connectors.get(cp.position().asLong()), globalNet);
+		for(Entry<ConnectionPoint, Collection<Connection>> entry : connections.entrySet())
+			for(Connection c : entry.getValue())
+				if(c.isPositiveEnd(entry.getKey()))
+					addRequestedHandlers(c.type, globalNet);
+		for(LocalNetworkHandler h : handlers.values())
+		{
+			for(ConnectionPoint cp : connections.keySet())
+				h.onConnectorLoaded(cp, connectors.get(cp.position().asLong()));
+			for(Entry<ConnectionPoint, Collection<Connection>> entry : connections.entrySet())
+				for(Connection c : entry.getValue())
+					if(c.isPositiveEnd(entry.getKey()))
+						h.onConnectionAdded(c);
+		}
+	}
+
 	private Multiset<ILocalHandlerProvider> getProvidersFor(ResourceLocation rl)
 	{
 		return handlerUsers.computeIfAbsent(rl, rl_ -> HashMultiset.create());
@@ -393,7 +529,7 @@ public class LocalWireNetwork implements IWorldTickable
 				break;
 			LocalWireNetwork newNet = new LocalWireNetwork(globalNet);
 			for(ConnectionPoint p : inComponent)
-				newNet.addConnector(p, connectors.get(p.position()), globalNet);
+				newNet.addConnector(p, connectors.get(p.position().asLong()), globalNet);
 			for(ConnectionPoint p : inComponent)
 				for(Connection c : getConnections(p))
 					if(c.isPositiveEnd(p))
@@ -403,6 +539,115 @@ public class LocalWireNetwork implements IWorldTickable
 		return ret;
 	}
 
+	/**
+	 * Checks whether two points of this net are still connected after connections were removed. If they are not, the
+	 * component of one of the points (whichever was found to be smaller) is moved into a new net, which is returned.
+	 * Otherwise this returns null and nothing is changed.
+	 */
+	@Nullable
+	LocalWireNetwork splitAfterRemoval(ConnectionPoint a, ConnectionPoint b, GlobalWireNetwork globalNet)
+	{
+		Collection<ConnectionPoint> detached = findDetachedComponent(a, b);
+		if(detached==null)
+			return null;
+		LocalWireNetwork newNet = new LocalWireNetwork(globalNet);
+		for(ConnectionPoint p : detached)
+			newNet.addConnector(p, connectors.get(p.position().asLong()), globalNet);
+		for(ConnectionPoint p : detached)
+			for(Connection c : getConnections(p))
+				if(c.isPositiveEnd(p))
+					newNet.addConnection(c, globalNet);
+		removeDetached(detached);
+		return newNet;
+	}
+
+	/**
+	 * Runs a search from both points at the same time, alternating between the two sides one point at a time. If the
+	 * searches meet the points are still connected and null is returned. Otherwise the side that runs out of points
+	 * first is a complete component, and at most one point larger than the part of the other side that was visited.
+	 * This keeps the cost proportional to the smaller component if the net was split, and usually well below the size
+	 * of the net if it wasn't.
+	 */
+	@Nullable
+	private Collection<ConnectionPoint> findDetachedComponent(ConnectionPoint a, ConnectionPoint b)
+	{
+		if(!connections.containsKey(a)||!connections.containsKey(b))
+			return null;
+		Set<ConnectionPoint> visitedA = new HashSet<>();
+		Set<ConnectionPoint> visitedB = new HashSet<>();
+		Deque<ConnectionPoint> openA = new ArrayDeque<>();
+		Deque<ConnectionPoint> openB = new ArrayDeque<>();
+		visitedA.add(a);
+		openA.add(a);
+		visitedB.add(b);
+		openB.add(b);
+		while(true)
+		{
+			if(openA.isEmpty())
+				return visitedA;
+			if(expandSearch(openA, visitedA, visitedB))
+				return null;
+			if(openB.isEmpty())
+				return visitedB;
+			if(expandSearch(openB, visitedB, visitedA))
+				return null;
+		}
+	}
+
+	// Returns true if the search reached a point visited by the other search
+	private boolean expandSearch(Deque<ConnectionPoint> open, Set<ConnectionPoint> visited, Set<ConnectionPoint> visitedOther)
+	{
+		ConnectionPoint curr = open.poll();
+		for(Connection c : getConnections(curr))
+		{
+			ConnectionPoint otherEnd = c.getOtherEnd(curr);
+			if(visitedOther.contains(otherEnd))
+				return true;
+			if(visited.add(otherEnd))
+				open.add(otherEnd);
+		}
+		return false;
+	}
+
+	// Removes a component that has been copied to a different net, notifying handlers as if its connections and
+	// connectors had been removed
+	private void removeDetached(Collection<ConnectionPoint> detached)
+	{
+		++version;
+		for(ConnectionPoint p : detached)
+			for(Connection c : getConnections(p))
+				if(c.isPositiveEnd(p))
+				{
+					for(LocalNetworkHandler h : handlers.values())
+						h.onConnectionRemoved(c);
+					removeHandlersFor(c.type);
+				}
+		Set<BlockPos> touchedBlocks = new HashSet<>();
+		for(ConnectionPoint p : detached)
+		{
+			removeHandlersFor(connectors.get(p.position().asLong()));
+			connections.remove(p);
+			touchedBlocks.add(p.position());
+		}
+		for(BlockPos pos : touchedBlocks)
+		{
+			IImmersiveConnectable iic = connectors.get(pos.asLong());
+			boolean hasRemainingPoints = false;
+			for(ConnectionPoint cp : iic.getConnectionPoints())
+				if(connections.containsKey(cp))
+				{
+					hasRemainingPoints = true;
+					break;
+				}
+			if(!hasRemainingPoints)
+			{
+				connectors.remove(pos.asLong());
+				for(LocalNetworkHandler h : handlers.values())
+					h.onConnectorRemoved(pos, iic);
+			}
+		}
+	}
+
 	private Collection<ConnectionPoint> getConnectedComponent(ConnectionPoint start, Set<ConnectionPoint> unvisited)
 	{
 		Deque<ConnectionPoint> open = new ArrayDeque<>();
@@ -440,13 +685,35 @@ public class LocalWireNetwork implements IWorldTickable
 	@Override
 	public void update(Level w)
 	{
-		for(LocalNetworkHandler handler : handlers.values())
-			if(handler instanceof IWorldTickable)
-				((IWorldTickable)handler).update(w);
-		List<Runnable> toRun = runNextTick;
-		runNextTick = new ArrayList<>();
-		for(Runnable r : toRun)
-			r.run();
+		for(IWorldTickable handler : tickableHandlers)
+			handler.update(w);
+		runFutureTasks();
+	}
+
+	// The returned array is never modified, see onHandlersChanged
+	IWorldTickable[] getTickableHandlers()
+	{
+		return tickableHandlers;
+	}
+
+	void runFutureTasks()
+	{
+		if(!runNextTick.isEmpty())
+		{
+			List<Runnable> toRun = runNextTick;
+			runNextTick = new ArrayList<>();
+			for(Runnable r : toRun)
+				r.run();
+		}
+	}
+
+	/**
+	 * @return whether {@link #update(Level)} would do anything, i.e. whether this net has any tickable handlers or
+	 * pending tasks
+	 */
+	public boolean needsTicking()
+	{
+		return isValid&&(tickableHandlers.length > 0||!runNextTick.isEmpty());
 	}
 
 	@Nullable
@@ -472,6 +739,7 @@ public class LocalWireNetwork implements IWorldTickable
 	public void addAsFutureTask(Runnable r)
 	{
 		runNextTick.add(r);
+		globalNet.scheduleTick(this);
 	}
 
 	// Internal use only, for network sanitization
@@ -492,6 +760,12 @@ public class LocalWireNetwork implements IWorldTickable
 			removeConnector(cp.position());
 	}
 
+	// Called when data that is saved but not part of the graph structure changes, e.g. wire offsets
+	void markChanged()
+	{
+		++version;
+	}
+
 	public void setInvalid()
 	{
 		++version;
@@ -508,6 +782,11 @@ public class LocalWireNetwork implements IWorldTickable
 		return isValid&&connections.containsKey(cp);
 	}
 
+	boolean isValid(BlockPos pos, int index)
+	{
+		return isValid&&connections.containsKey(pos, index);
+	}
+
 	/**
 	 * Returns the current "version" of the local network. If the version is the same as in a previous call the graph
 	 * structure of this component (and its validity) is guaranteed to have stayed the same. The exact value has no
@@ -517,4 +796,53 @@ public class LocalWireNetwork implements IWorldTickable
 	{
 		return version;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Builds a net directly from saved data. Unlike addConnector and addConnection this skips most consistency checks,
+	 * does not bump the version, and does not create or notify handlers, so independent nets can be built on
+	 * different threads. {@link #initHandlers()} must be called on the built net before it is used.
+	 */
+	static final class Builder
+	{
+		private final LocalWireNetwork net;
+
+		Builder(GlobalWireNetwork globalNet)
+		{
+			this.net = new LocalWireNetwork(globalNet);
+		}
+
+		/**
+		 * @return false if the point was already present
+		 */
+		boolean addConnector(ConnectionPoint cp, IImmersiveConnectable iic)
+		{
+			if(net.connections.containsKey(cp))
+				return false;
+			net.connections.put(cp, new ArrayList<>());
+			net.connectors.putIfAbsent(cp.position().asLong(), iic);
+			return true;
+		}
+
+		/**
+		 * @return false if one of the ends is not part of the net or the ends are already connected
+		 */
+		boolean addConnection(Connection conn)
+		{
+			Collection<Connection> atA = net.connections.get(conn.getEndA());
+			Collection<Connection> atB = net.connections.get(conn.getEndB());
+			if(atA==null||atB==null)
+				return false;
+			for(Connection existing : atA)
+				if(existing.getOtherEnd(conn.getEndA()).equals(conn.getEndB()))
+					return false;
+			atA.add(conn);
+			atB.add(conn);
+			return true;
+		}
+
+		LocalWireNetwork build()
+		{
+			return net;
+		}
+	}
+}
@@ -0,0 +1,165 @@
+package com.miniverse.modularinfrastructure.api.wires;
+
+import com.miniverse.modularinfrastructure.api.Lib;
+import com.miniverse.modularinfrastructure.api.wires.localhandlers.IParallelTickable;
+import com.miniverse.modularinfrastructure.api.wires.localhandlers.IWorldTickable;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import net.minecraft.world.level.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Ticks local nets with the compute phase of their {@link IParallelTickable} handlers running on a fork-join pool.
+ * Local nets share no graph state, so the compute phases of different nets can run concurrently. All world access
+ * happens on the server thread: first every net prepares its handlers, then all compute phases run, then each net
+ * commits its handlers and runs its future tasks in the same order as the sequential update would.
+ * <br>
+ * A connector with points in several local nets is shared by their handlers. If those nets were all prepared before
+ * any of them commits, each would plan against the same energy levels of the connector. Nets that share a connector
+ * with another ticking net are therefore not prepared up front, but fully updated at their place in the order, as in
+ * the sequential update.
+ * <br>
+ * Nets that do not share a connector can still affect each other through the world, e.g. by feeding the same machine
+ * through different connectors. Those nets all plan against the start-of-tick levels, while in the sequential update
+ * each net sees the energy moved by the nets before it. The optional determinism check does not detect this.
+ */
+final class ParallelNetTicker
+{
+	private static final Logger LOGGER = LogManager.getLogger(Lib.MODID+"-wires");
+	@Nullable
+	private static ForkJoinPool pool;
+
+	private ParallelNetTicker()
+	{
+	}
+
+	static void tick(LocalWireNetwork[] nets, Level world, boolean checkDeterminism)
+	{
+		Set<LocalWireNetwork> sequential = findNetsSharingConnectors(nets);
+		List<PendingTick<?>> pending = new ArrayList<>();
+		Map<IParallelTickable<?>, PendingTick<?>> byHandler = new Reference2ObjectOpenHashMap<>();
+		for(LocalWireNetwork net : nets)
+			if(net.needsTicking()&&!sequential.contains(net))
+				for(IWorldTickable handler : net.getTickableHandlers())
+					if(handler instanceof IParallelTickable<?> parallel)
+					{
+						parallel.prepareTick(world);
+						PendingTick<?> tick = PendingTick.of(parallel);
+						pending.add(tick);
+						byHandler.put(parallel, tick);
+					}
+		if(pending.size() > 1)
+			getPool().submit(() -> pending.parallelStream().forEach(PendingTick::compute)).join();
+		else
+			pending.forEach(PendingTick::compute);
+		if(checkDeterminism)
+			for(PendingTick<?> tick : pending)
+				tick.checkDeterminism();
+		for(LocalWireNetwork net : nets)
+		{
+			// A net may have been invalidated by an earlier net's commit or future tasks
+			if(!net.needsTicking())
+				continue;
+			final boolean updateSequentially = sequential.contains(net);
+			for(IWorldTickable handler : net.getTickableHandlers())
+				if(updateSequentially||!(handler instanceof IParallelTickable<?>))
+					handler.update(world);
+				else
+				{
+					// Handlers added during this tick were not prepared and are first ticked next tick
+					PendingTick<?> tick = byHandler.get(handler);
+					if(tick!=null)
+						tick.commit(world);
+				}
+			net.runFutureTasks();
+		}
+	}
+
+	private static Set<LocalWireNetwork> findNetsSharingConnectors(LocalWireNetwork[] nets)
+	{
+		Long2ObjectMap<LocalWireNetwork> netByConnector = new Long2ObjectOpenHashMap<>();
+		Set<LocalWireNetwork> sharing = new ReferenceOpenHashSet<>();
+		for(LocalWireNetwork net : nets)
+			if(net.needsTicking())
+				for(LongIterator it = net.getConnectorPositions().iterator(); it.hasNext(); )
+				{
+					LocalWireNetwork previous = netByConnector.putIfAbsent(it.nextLong(), net);
+					if(previous!=null&&previous!=net)
+					{
+						sharing.add(previous);
+						sharing.add(net);
+					}
+				}
+		return sharing;
+	}
+
+	private static synchronized ForkJoinPool getPool()
+	{
+		if(pool==null)
+			pool = new ForkJoinPool(
+					Math.max(1, Runtime.getRuntime().availableProcessors()-1),
+					p -> {
+						ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+						thread.setName("Wire network worker "+thread.getPoolIndex());
+						thread.setDaemon(true);
+						return thread;
+					},
+					null, false
+			);
+		return pool;
+	}
+
+	private static final class PendingTick<R>
+	{
+		private final IParallelTickable<R> handler;
+		private R result;
+
+		private PendingTick(IParallelTickable<R> handler)
+		{
+			this.handler = handler;
+		}
+
+		private static <R> PendingTick<R> of(IParallelTickable<R> handler)
+		{
+			return new PendingTick<>(handler);
+		}
+
+		private void compute()
+		{
+			result = handler.computeTick();
+		}
+
+		/**
+		 * Recomputes the result on this thread from the same prepared state. This finds results that depend on timing
+		 * or on the thread, not differences to the sequential update, which prepares each net after the previous ones
+		 * have committed.
+		 */
+		private void checkDeterminism()
+		{
+			R recomputed = handler.recomputeTick();
+			if(!Objects.equals(result, recomputed))
+			{
+				LOGGER.error("Parallel tick of {} differs from recomputed tick: {} vs {}", handler, result, recomputed);
+				result = recomputed;
+			}
+		}
+
+		private void commit(Level world)
+		{
+			handler.commitTick(world, result);
+		}
+	}
+}
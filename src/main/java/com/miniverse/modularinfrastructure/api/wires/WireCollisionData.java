@@ -14,33 +14,23 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 import net.minecraft.core.BlockPos;
-import net.minecraft.core.SectionPos;
 import net.minecraft.world.phys.Vec3;
-import org.apache.commons.lang3.mutable.Mutable;
-import org.apache.commons.lang3.mutable.MutableInt;
-import org.apache.commons.lang3.mutable.MutableObject;
 
 import javax.annotation.Nonnull;
-import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.function.BiConsumer;
 
 public class WireCollisionData
 {
-	// Only populated on server
+	// Only populated on server, the client uses the ClientWireStore instead
 	private final Map<BlockPos, List<CollisionInfo>> blockToWires = new Object2ObjectOpenHashMap<>();
-	// Only populated on client
-	private final Map<SectionPos, List<ConnectionSegments>> sectionsToWires = new Object2ObjectOpenHashMap<>();
 	private final GlobalWireNetwork net;
-	private final boolean isClient;
 
-	WireCollisionData(GlobalWireNetwork net, boolean isClient)
+	WireCollisionData(GlobalWireNetwork net)
 	{
 		this.net = net;
-		this.isClient = isClient;
 	}
 
 	public void addConnection(Connection conn)
@@ -48,59 +38,22 @@ public class WireCollisionData
 		if(conn.isInternal()||conn.blockDataGenerated)
 			return;
 		WireLogger.logger.info("Adding block data for {}", conn);
-		if(isClient)
-			forEachSection(conn, (sectionPos, segments) -> {
-				sectionsToWires.computeIfAbsent(sectionPos, $ -> new ArrayList<>()).add(segments);
-			});
-		else
-		{
-			Preconditions.checkState(net.getLocalNet(conn.getEndA())==net.getLocalNet(conn.getEndB()));
-			WireUtils.raytraceAlongCatenary(
-					conn,
-					p -> add(p.block(), new CollisionInfo(p.entersAt(), p.leavesAt(), conn, true)),
-					p -> add(p.block(), new CollisionInfo(p.entersAt(), p.leavesAt(), conn, false))
-			);
-		}
+		Preconditions.checkState(net.getLocalNet(conn.getEndA())==net.getLocalNet(conn.getEndB()));
+		WireUtils.raytraceAlongCatenary(
+				conn,
+				p -> add(p.block(), new CollisionInfo(p.entersAt(), p.leavesAt(), conn, true)),
+				p -> add(p.block(), new CollisionInfo(p.entersAt(), p.leavesAt(), conn, false))
+		);
 		conn.blockDataGenerated = true;
 	}
 
 	public void removeConnection(Connection conn)
 	{
 		WireLogger.logger.info("Removing block data for {}", conn);
-		if(isClient)
-			forEachSection(conn, (sectionPos, segments) -> {
-				List<ConnectionSegments> forSection = sectionsToWires.get(sectionPos);
-				if(forSection!=null)
-				{
-					forSection.remove(segments);
-					if(forSection.isEmpty())
-						sectionsToWires.remove(sectionPos);
-				}
-			});
-		else
-			WireUtils.raytraceAlongCatenary(conn, p -> remove(p.block(), conn), p -> remove(p.block(), conn));
+		WireUtils.raytraceAlongCatenary(conn, p -> remove(p.block(), conn), p -> remove(p.block(), conn));
 		conn.blockDataGenerated = false;
 	}
 
-	private void forEachSection(Connection conn, BiConsumer<SectionPos, ConnectionSegments> out)
-	{
-		Mutable<SectionPos> currentSection = new MutableObject<>(null);
-		MutableInt sectionStart = new MutableInt(0);
-		WireUtils.forEachRenderPoint(conn, (id, relative, section) -> {
-			if(currentSection.getValue()!=null&&
-					(!section.equals(currentSection.getValue())||id==Connection.RENDER_POINTS_PER_WIRE))
-			{
-				out.accept(currentSection.getValue(), new ConnectionSegments(conn, sectionStart.intValue(), id));
-				currentSection.setValue(null);
-			}
-			if(currentSection.getValue()==null)
-			{
-				currentSection.setValue(section);
-				sectionStart.setValue(id);
-			}
-		});
-	}
-
 	private void remove(BlockPos pos, Connection toRemove)
 	{
 		List<CollisionInfo> existing = blockToWires.get(pos);
@@ -128,16 +81,6 @@ public class WireCollisionData
 		return ret;
 	}
 
-	@Nullable
-	public List<ConnectionSegments> getWiresIn(SectionPos section)
-	{
-		List<ConnectionSegments> containedWires = sectionsToWires.get(section);
-		if(containedWires==null)
-			return null;
-		else
-			return List.copyOf(containedWires);
-	}
-
 	public record CollisionInfo(
 			@Nonnull Vec3 intersectA, @Nonnull Vec3 intersectB, @Nonnull Connection connection, boolean isInBlock
 	)
@@ -147,8 +90,4 @@ public class WireCollisionData
 			return connection.getContainingNet(net);
 		}
 	}
-
-	public record ConnectionSegments(Connection connection, int firstPointToRender, int lastPointToRender)
-	{
-	}
 }
\ No newline at end of file
@@ -0,0 +1,394 @@
+package com.miniverse.modularinfrastructure.api.wires;
+
+import com.miniverse.modularinfrastructure.api.Lib;
+import io.netty.buffer.Unpooled;
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.world.phys.Vec3;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the wire changes since the last save of a {@link GlobalWireNetwork}. If the server stops without
+ * saving, the changes are replayed over the last saved state on the next load. Each save compacts the journal by
+ * starting a new one, the previous journal is kept until the save after that in case the save itself never reaches
+ * the disk.
+ * <p>
+ * Every journal starts with a header containing the generation of the saved state it applies to. Records are framed
+ * by their length and a CRC32 of their payload, replay stops at the first incomplete or corrupted record. Records are
+ * buffered and written once per tick, so a crash of the JVM loses nothing that was written, while a power loss can
+ * lose what the OS has not flushed yet.
+ */
+final class WireJournal
+{
+	private static final Logger LOGGER = LogManager.getLogger(Lib.MODID+"-wires");
+	private static final int MAGIC = 0x4D494A4C;
+	private static final int FORMAT = 1;
+	private static final int HEADER_SIZE = 4+1+8;
+	private static final int BUFFER_SIZE = 1<<16;
+
+	private static final int OP_ADD = 0;
+	private static final int OP_REMOVE = 1;
+	private static final int OP_UPDATE_ENDPOINTS = 2;
+	private static final int OP_REMOVE_CONNECTOR = 3;
+	private static final int FLAG_INTERNAL = 1;
+
+	private final Path file;
+	private final Path previousFile;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	private final FriendlyByteBuf scratch = new FriendlyByteBuf(Unpooled.buffer());
+	private final CRC32 crc = new CRC32();
+	private FileChannel channel;
+	private long generation;
+
+	private WireJournal(Path file, FileChannel channel, long generation)
+	{
+		this.file = file;
+		this.previousFile = getPreviousFile(file);
+		this.channel = channel;
+		this.generation = generation;
+	}
+
+	/**
+	 * Replays the journals belonging to the given saved generation into the network, then opens the journal for
+	 * appending
+	 *
+	 * @return the open journal, or null if it could not be opened. Wire changes are not journaled in that case
+	 */
+	@Nullable
+	static WireJournal open(Path file, long savedGeneration, GlobalWireNetwork net)
+	{
+		try
+		{
+			Files.createDirectories(file.getParent());
+			Path previousFile = getPreviousFile(file);
+			long previousGeneration = readGeneration(previousFile);
+			long currentGeneration = readGeneration(file);
+			long generation = savedGeneration;
+			long validLength = -1;
+			// The previous journal only applies if the last save before the current journal never reached the disk. The
+			// current journal then continues the previous one, so it needs to be the next generation
+			if(previousGeneration==savedGeneration)
+			{
+				replay(previousFile, net);
+				generation = savedGeneration+1;
+				if(currentGeneration==generation)
+					validLength = replay(file, net);
+			}
+			else if(currentGeneration==savedGeneration)
+				validLength = replay(file, net);
+			else if(currentGeneration >= 0)
+				LOGGER.warn(
+						"Ignoring wire journal {} for generation {}, saved wire network is generation {}",
+						file, currentGeneration, savedGeneration
+				);
+			FileChannel channel = FileChannel.open(
+					file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ
+			);
+			if(validLength >= 0)
+			{
+				// Drop a torn record at the end, otherwise everything appended after it would be lost on replay
+				channel.truncate(validLength);
+				channel.position(validLength);
+			}
+			else
+				startJournal(channel, generation);
+			return new WireJournal(file, channel, generation);
+		} catch(IOException|RuntimeException x)
+		{
+			LOGGER.error("Failed to open wire journal {}, wire changes will only be saved with the world", file, x);
+			return null;
+		}
+	}
+
+	long getGeneration()
+	{
+		return generation;
+	}
+
+	void connectionAdded(Connection conn)
+	{
+		append(OP_ADD, conn, true);
+	}
+
+	void connectionRemoved(Connection conn)
+	{
+		append(OP_REMOVE, conn, false);
+	}
+
+	void endpointsChanged(Connection conn)
+	{
+		append(OP_UPDATE_ENDPOINTS, conn, true);
+	}
+
+	void connectorRemoved(BlockPos pos)
+	{
+		scratch.clear();
+		scratch.writeByte(OP_REMOVE_CONNECTOR);
+		scratch.writeLong(pos.asLong());
+		appendScratch();
+	}
+
+	/**
+	 * Writes all buffered records to the file
+	 */
+	void flush()
+	{
+		try
+		{
+			writeBuffer();
+		} catch(IOException x)
+		{
+			LOGGER.error("Failed to write to wire journal {}", file, x);
+		}
+	}
+
+	/**
+	 * Called when the network is saved as the given generation: the current journal is kept as the previous one, and
+	 * a new empty journal is started for the changes after the save
+	 *
+	 * @return false if the new journal could not be started, the journal is closed in that case
+	 */
+	boolean rotate(long newGeneration)
+	{
+		try
+		{
+			writeBuffer();
+			channel.force(false);
+			channel.close();
+			Files.move(file, previousFile, StandardCopyOption.REPLACE_EXISTING);
+			channel = FileChannel.open(
+					file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ
+			);
+			startJournal(channel, newGeneration);
+			generation = newGeneration;
+			return true;
+		} catch(IOException x)
+		{
+			LOGGER.error("Failed to start new wire journal {}, wire changes will only be saved with the world", file, x);
+			close();
+			return false;
+		}
+	}
+
+	void close()
+	{
+		try(FileChannel toClose = channel)
+		{
+			if(toClose.isOpen())
+			{
+				writeBuffer();
+				toClose.force(false);
+			}
+		} catch(IOException x)
+		{
+			LOGGER.error("Failed to close wire journal {}", file, x);
+		}
+	}
+
+	private void writeBuffer() throws IOException
+	{
+		buffer.flip();
+		while(buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	private void append(int op, Connection conn, boolean withOffsets)
+	{
+		scratch.clear();
+		scratch.writeByte(op);
+		BlockPos posA = conn.getEndA().position();
+		scratch.writeLong(posA.asLong());
+		scratch.writeVarInt(conn.getEndA().index());
+		BinaryNetFormat.writePoint(scratch, posA, conn.getEndB());
+		scratch.writeByte(conn.isInternal()?FLAG_INTERNAL: 0);
+		if(!conn.isInternal())
+		{
+			scratch.writeUtf(conn.type.getUniqueName());
+			if(withOffsets)
+			{
+				BinaryNetFormat.writeVec(scratch, conn.getEndAOffset());
+				BinaryNetFormat.writeVec(scratch, conn.getEndBOffset());
+			}
+		}
+		appendScratch();
+	}
+
+	private void appendScratch()
+	{
+		int length = scratch.readableBytes();
+		crc.reset();
+		crc.update(scratch.nioBuffer());
+		try
+		{
+			if(buffer.remaining() < 5+length+4)
+				writeBuffer();
+			if(buffer.remaining() < 5+length+4)
+			{
+				// Larger than the whole buffer, this does not happen for the record types that currently exist
+				ByteBuffer record = ByteBuffer.allocate(5+length+4);
+				writeRecord(record, length);
+				record.flip();
+				while(record.hasRemaining())
+					channel.write(record);
+			}
+			else
+				writeRecord(buffer, length);
+		} catch(IOException x)
+		{
+			LOGGER.error("Failed to write to wire journal {}", file, x);
+		}
+	}
+
+	private void writeRecord(ByteBuffer out, int length)
+	{
+		for(int value = length; ; value >>>= 7)
+			if((value&~0x7F)==0)
+			{
+				out.put((byte)value);
+				break;
+			}
+			else
+				out.put((byte)(value&0x7F|0x80));
+		out.put(scratch.nioBuffer());
+		out.putInt((int)crc.getValue());
+	}
+
+	private static void startJournal(FileChannel channel, long generation) throws IOException
+	{
+		channel.truncate(0);
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC).put((byte)FORMAT).putLong(generation).flip();
+		channel.position(0);
+		while(header.hasRemaining())
+			channel.write(header);
+		channel.force(false);
+	}
+
+	/**
+	 * @return the generation in the header of the journal, or -1 if the file does not exist or is not a journal
+	 */
+	private static long readGeneration(Path file) throws IOException
+	{
+		if(!Files.isRegularFile(file)||Files.size(file) < HEADER_SIZE)
+			return -1;
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			while(header.hasRemaining()&&channel.read(header) >= 0) ;
+			header.flip();
+			if(header.getInt()!=MAGIC||header.get()!=FORMAT)
+				return -1;
+			return header.getLong();
+		}
+	}
+
+	/**
+	 * @return the length of the valid part of the journal
+	 */
+	private static long replay(Path file, GlobalWireNetwork net) throws IOException
+	{
+		FriendlyByteBuf in = new FriendlyByteBuf(Unpooled.wrappedBuffer(Files.readAllBytes(file)));
+		in.skipBytes(HEADER_SIZE);
+		CRC32 crc = new CRC32();
+		int numRecords = 0;
+		while(in.isReadable())
+		{
+			int start = in.readerIndex();
+			int length = readLength(in);
+			if(length < 0||in.readableBytes() < length+4)
+			{
+				LOGGER.warn("Wire journal {} ends with an incomplete record at byte {}", file, start);
+				in.readerIndex(start);
+				break;
+			}
+			FriendlyByteBuf record = new FriendlyByteBuf(in.readSlice(length));
+			crc.reset();
+			crc.update(record.nioBuffer());
+			if((int)crc.getValue()!=in.readInt())
+			{
+				LOGGER.warn("Wire journal {} has a corrupted record at byte {}", file, start);
+				in.readerIndex(start);
+				break;
+			}
+			try
+			{
+				apply(record, net);
+				++numRecords;
+			} catch(RuntimeException x)
+			{
+				LOGGER.error("Failed to replay wire journal record at byte {} of {}", start, file, x);
+			}
+		}
+		if(numRecords > 0)
+			LOGGER.info("Replayed {} wire changes from journal {}", numRecords, file);
+		return in.readerIndex();
+	}
+
+	private static int readLength(FriendlyByteBuf in)
+	{
+		int value = 0;
+		for(int shift = 0; shift < 35; shift += 7)
+		{
+			if(!in.isReadable())
+				return -1;
+			byte next = in.readByte();
+			value |= (next&0x7F)<<shift;
+			if((next&0x80)==0)
+				return value;
+		}
+		return -1;
+	}
+
+	private static void apply(FriendlyByteBuf record, GlobalWireNetwork net)
+	{
+		int op = record.readByte();
+		if(op==OP_REMOVE_CONNECTOR)
+		{
+			net.removeConnector(BlockPos.of(record.readLong()));
+			return;
+		}
+		BlockPos posA = BlockPos.of(record.readLong());
+		ConnectionPoint endA = new ConnectionPoint(posA, record.readVarInt());
+		ConnectionPoint endB = BinaryNetFormat.readPoint(record, posA);
+		boolean internal = (record.readByte()&FLAG_INTERNAL)!=0;
+		Connection conn;
+		if(internal)
+			conn = new Connection(posA, endA.index(), endB.index());
+		else
+		{
+			WireType type = WireType.getValue(record.readUtf());
+			Vec3 offsetA = Vec3.ZERO;
+			Vec3 offsetB = Vec3.ZERO;
+			if(op!=OP_REMOVE)
+			{
+				offsetA = BinaryNetFormat.readVec(record);
+				offsetB = BinaryNetFormat.readVec(record);
+			}
+			conn = new Connection(type, endA, endB, offsetA, offsetB);
+		}
+		switch(op)
+		{
+			case OP_ADD -> net.replayConnectionAdded(conn);
+			case OP_REMOVE -> net.replayConnectionRemoved(conn);
+			case OP_UPDATE_ENDPOINTS -> net.replayEndpointsChanged(conn);
+			default -> LOGGER.warn("Unknown wire journal record type {}", op);
+		}
+	}
+
+	private static Path getPreviousFile(Path file)
+	{
+		return file.resolveSibling(file.getFileName()+".old");
+	}
+}
@@ -34,26 +34,30 @@ public abstract class WireType implements ILocalHandlerProvider
 	public static final String STRUCTURE_CATEGORY = "STRUCTURE";
 	public static final String REDSTONE_CATEGORY = "REDSTONE";
 	public static final String POWER_CATEGORY = "POWER";
+	/**
+	 * Uses the unique name. Packets should use {@link WireTypeRegistry#STREAM_CODEC} instead, which only sends the ID
+	 */
 	public static final DualCodec<ByteBuf, WireType> CODECS = DualCodecs.STRING
 			.map(WireType::getValue, WireType::getUniqueName);
-	private static final LinkedHashSet<WireType> values = new LinkedHashSet<>();
 
+	/**
+	 * @return all wire types in ID order. The set is shared and must not be modified, use
+	 * {@link WireTypeRegistry#getValues()} for a read-only view
+	 */
 	public static LinkedHashSet<WireType> getValues()
 	{
-		return values;
+		return WireTypeRegistry.getValueSet();
 	}
 
 	public static WireType getValue(String name)
 	{
-		for(WireType type : values)
-			if(type!=null&&type.getUniqueName().equals(name))
-				return type;
-		return COPPER;
+		WireType type = WireTypeRegistry.byName(name);
+		return type!=null?type: COPPER;
 	}
 
 	public WireType()
 	{
-		values.add(this);
+		WireTypeRegistry.register(this);
 	}
 
 	public abstract String getUniqueName();
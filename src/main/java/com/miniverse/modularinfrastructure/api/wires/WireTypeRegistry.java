@@ -0,0 +1,165 @@
+package com.miniverse.modularinfrastructure.api.wires;
+
+import io.netty.buffer.ByteBuf;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntMaps;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import net.minecraft.network.codec.ByteBufCodecs;
+import net.minecraft.network.codec.StreamCodec;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * All wire types, indexed by unique name and by a numeric ID. IDs are assigned in the order the types are created, so
+ * they are only stable for one game session and must not be saved without a table of the names. The client receives
+ * the server's names in ID order on login (see {@link #setSyncedNames(List)}), so packets only need to carry the ID.
+ * <p>
+ * The indices are built lazily since {@link WireType#getUniqueName()} is generally not available yet while the type is
+ * being constructed. Lookups can happen from any thread, the indices are immutable snapshots that are replaced when
+ * new types were created.
+ */
+public final class WireTypeRegistry
+{
+	/**
+	 * Sends the ID instead of the name, decoding uses the IDs of the server once they have been synced
+	 */
+	public static final StreamCodec<ByteBuf, WireType> STREAM_CODEC = ByteBufCodecs.VAR_INT.map(
+			WireTypeRegistry::bySyncedId, WireTypeRegistry::getId
+	);
+
+	private static final List<WireType> types = new ArrayList<>();
+	private static final Collection<WireType> typesView = Collections.unmodifiableList(types);
+	private static volatile int numTypes = 0;
+	private static volatile Index index = new Index(
+			new WireType[0], Map.of(), Reference2IntMaps.emptyMap(), new LinkedHashSet<>()
+	);
+	@Nullable
+	private static volatile WireType[] syncedTypes;
+
+	private WireTypeRegistry()
+	{
+	}
+
+	static synchronized void register(WireType type)
+	{
+		types.add(type);
+		numTypes = types.size();
+	}
+
+	/**
+	 * @return all wire types in ID order. Only modified while types are created, i.e. during mod loading
+	 */
+	public static Collection<WireType> getValues()
+	{
+		return typesView;
+	}
+
+	/**
+	 * @return all wire types in ID order as a set, for {@link WireType#getValues()}. The set is shared until new types
+	 * are created and must not be modified
+	 */
+	static LinkedHashSet<WireType> getValueSet()
+	{
+		return getIndex().valueSet();
+	}
+
+	@Nullable
+	public static WireType byName(String name)
+	{
+		return getIndex().byName().get(name);
+	}
+
+	/**
+	 * @return the ID of the type for this session, or -1 for types that were not created through the WireType
+	 * constructor
+	 */
+	public static int getId(WireType type)
+	{
+		return getIndex().ids().getInt(type);
+	}
+
+	@Nullable
+	public static WireType byId(int id)
+	{
+		WireType[] byId = getIndex().byId();
+		return id >= 0&&id < byId.length?byId[id]: null;
+	}
+
+	/**
+	 * @return the unique names of all types, with each type at its ID
+	 */
+	public static List<String> getNamesById()
+	{
+		WireType[] byId = getIndex().byId();
+		List<String> names = new ArrayList<>(byId.length);
+		for(WireType type : byId)
+			names.add(type.getUniqueName());
+		return names;
+	}
+
+	/**
+	 * Client side: sets the IDs used by the server the client is connected to. Types that are unknown on the client are
+	 * decoded as {@link WireType#COPPER} like unknown names
+	 */
+	public static void setSyncedNames(@Nullable List<String> namesById)
+	{
+		if(namesById==null)
+		{
+			syncedTypes = null;
+			return;
+		}
+		WireType[] byId = new WireType[namesById.size()];
+		for(int i = 0; i < byId.length; ++i)
+			byId[i] = WireType.getValue(namesById.get(i));
+		syncedTypes = byId;
+	}
+
+	private static WireType bySyncedId(int id)
+	{
+		WireType[] synced = syncedTypes;
+		// Without synced IDs (integrated server), client and server share the same types and IDs
+		WireType type = synced!=null?(id >= 0&&id < synced.length?synced[id]: null): byId(id);
+		return type!=null?type: WireType.COPPER;
+	}
+
+	private static Index getIndex()
+	{
+		Index current = index;
+		if(current.byId().length!=numTypes)
+			current = rebuildIndex();
+		return current;
+	}
+
+	private static synchronized Index rebuildIndex()
+	{
+		if(index.byId().length==numTypes)
+			return index;
+		WireType[] byId = types.toArray(WireType[]::new);
+		Map<String, WireType> byName = new Object2ObjectOpenHashMap<>(byId.length);
+		Reference2IntMap<WireType> ids = new Reference2IntOpenHashMap<>(byId.length);
+		ids.defaultReturnValue(-1);
+		for(int id = 0; id < byId.length; ++id)
+		{
+			// The first type with a name wins, this matches the old linear search
+			byName.putIfAbsent(byId[id].getUniqueName(), byId[id]);
+			ids.put(byId[id], id);
+		}
+		index = new Index(byId, byName, ids, new LinkedHashSet<>(Arrays.asList(byId)));
+		return index;
+	}
+
+	private record Index(
+			WireType[] byId, Map<String, WireType> byName, Reference2IntMap<WireType> ids,
+			LinkedHashSet<WireType> valueSet
+	)
+	{
+	}
+}
@@ -0,0 +1,120 @@
+package com.miniverse.modularinfrastructure.api.wires.localhandlers;
+
+import com.miniverse.modularinfrastructure.api.wires.Connection;
+import com.miniverse.modularinfrastructure.api.wires.ConnectionPoint;
+import com.miniverse.modularinfrastructure.api.wires.LocalWireNetwork;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Snapshot of the connections of a local net for shortest path searches, in compressed sparse row form over int IDs of
+ * the connection points. Each connection is stored once per direction, with its basic loss precomputed.
+ */
+final class EnergyGraph
+{
+	final int numNodes;
+	// The edges starting at node i are firstEdge[i] until firstEdge[i+1]
+	final int[] firstEdge;
+	final int[] edgeTarget;
+	final double[] edgeLoss;
+	final Connection[] edgeConnection;
+
+	private EnergyGraph(int numNodes, int[] firstEdge, int[] edgeTarget, double[] edgeLoss, Connection[] edgeConnection)
+	{
+		this.numNodes = numNodes;
+		this.firstEdge = firstEdge;
+		this.edgeTarget = edgeTarget;
+		this.edgeLoss = edgeLoss;
+		this.edgeConnection = edgeConnection;
+	}
+
+	/**
+	 * Assigns IDs to all points of the net that do not have one yet. Points that are no longer part of the net keep their
+	 * ID, but have no edges.
+	 */
+	static EnergyGraph build(LocalWireNetwork net, PointIds ids)
+	{
+		Collection<ConnectionPoint> points = net.getConnectionPoints();
+		for(ConnectionPoint cp : points)
+			ids.getOrCreate(cp);
+		final int numNodes = ids.size();
+		int[] firstEdge = new int[numNodes+1];
+		for(ConnectionPoint cp : points)
+			firstEdge[ids.get(cp)+1] = net.getConnections(cp).size();
+		for(int i = 0; i < numNodes; ++i)
+			firstEdge[i+1] += firstEdge[i];
+		final int numEdges = firstEdge[numNodes];
+		int[] edgeTarget = new int[numEdges];
+		double[] edgeLoss = new double[numEdges];
+		Connection[] edgeConnection = new Connection[numEdges];
+		int[] nextEdge = Arrays.copyOf(firstEdge, numNodes);
+		for(ConnectionPoint cp : points)
+		{
+			final int from = ids.get(cp);
+			// Same order as the connections in the net, so searches break ties the same way
+			for(Connection c : net.getConnections(cp))
+			{
+				final int edge = nextEdge[from]++;
+				edgeTarget[edge] = ids.get(c.getOtherEnd(cp));
+				edgeLoss[edge] = EnergyTransferHandler.getBasicLoss(c);
+				edgeConnection[edge] = c;
+			}
+		}
+		return new EnergyGraph(numNodes, firstEdge, edgeTarget, edgeLoss, edgeConnection);
+	}
+
+	/**
+	 * Stable IDs of connection points, so results of earlier searches can still be used after the graph is rebuilt
+	 */
+	static final class PointIds
+	{
+		private final Object2IntMap<ConnectionPoint> idByPoint = new Object2IntOpenHashMap<>();
+		private final List<ConnectionPoint> pointById = new ArrayList<>();
+
+		PointIds()
+		{
+			idByPoint.defaultReturnValue(-1);
+		}
+
+		/**
+		 * @return the ID of the point, or -1 if it does not have one
+		 */
+		int get(ConnectionPoint cp)
+		{
+			return idByPoint.getInt(cp);
+		}
+
+		int getOrCreate(ConnectionPoint cp)
+		{
+			int id = idByPoint.getInt(cp);
+			if(id < 0)
+			{
+				id = pointById.size();
+				idByPoint.put(cp, id);
+				pointById.add(cp);
+			}
+			return id;
+		}
+
+		ConnectionPoint getPoint(int id)
+		{
+			return pointById.get(id);
+		}
+
+		int size()
+		{
+			return pointById.size();
+		}
+
+		void clear()
+		{
+			idByPoint.clear();
+			pointById.clear();
+		}
+	}
+}
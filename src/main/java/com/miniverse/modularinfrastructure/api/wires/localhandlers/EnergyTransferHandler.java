@@ -11,13 +11,16 @@ package com.miniverse.modularinfrastructure.api.wires.localhandlers;
 
 import com.miniverse.modularinfrastructure.api.IEApi;
 import com.miniverse.modularinfrastructure.api.wires.*;
-import com.miniverse.modularinfrastructure.api.wires.utils.BinaryHeap;
-import com.miniverse.modularinfrastructure.api.wires.utils.BinaryHeap.HeapEntry;
+import com.miniverse.modularinfrastructure.api.wires.utils.IndexedMinHeap;
+import com.miniverse.modularinfrastructure.api.wires.localhandlers.EnergyGraph.PointIds;
 import com.google.common.base.Preconditions;
 import com.mojang.datafixers.util.Pair;
 import it.unimi.dsi.fastutil.objects.Object2DoubleMap;
 import it.unimi.dsi.fastutil.objects.Object2DoubleMaps;
 import it.unimi.dsi.fastutil.objects.Object2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntMaps;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.particles.ParticleTypes;
 import net.minecraft.resources.ResourceLocation;
@@ -26,70 +29,223 @@ import net.minecraft.util.Mth;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.phys.Vec3;
 
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.*;
 import java.util.Map.Entry;
-import java.util.function.Consumer;
 
-public class EnergyTransferHandler extends LocalNetworkHandler implements IWorldTickable
+public class EnergyTransferHandler extends LocalNetworkHandler implements IParallelTickable<EnergyTransferHandler.TransferPlan>
 {
 	public static final ResourceLocation ID = IEApi.ieLoc("energy_transfer");
 
-	private final Map<ConnectionPoint, Map<ConnectionPoint, Path>> energyPaths = new HashMap<>();
+	// Shortest path trees by their root, over the IDs of pointIds
+	private final Map<ConnectionPoint, PathTree> pathTrees = new HashMap<>();
+	private final PointIds pointIds = new PointIds();
+	@Nullable
+	private EnergyGraph graph;
+	// Incremented whenever connections change, the graph is rebuilt lazily
+	private int topologyVersion = 0;
+	private int graphVersion = -1;
 	private Object2DoubleOpenHashMap<Connection> transferredNextTick = new Object2DoubleOpenHashMap<>();
 	private Object2DoubleMap<Connection> transferredLastTick = new Object2DoubleOpenHashMap<>();
 	private final Map<ConnectionPoint, EnergyConnector> sources = new HashMap<>();
 	private final Map<ConnectionPoint, EnergyConnector> sinks = new HashMap<>();
 	private final List<SinkPathsFromSource> transferPaths = new ArrayList<>();
 	private boolean sourceSinkMapInitialized = true;
+	private boolean transferPathsInitialized = true;
+	// Points whose source/sink flags and limits have to be updated before the next use
+	private final Set<ConnectionPoint> dirtyPoints = new HashSet<>();
+	// Energy available at sources and requested by sinks at the start of the tick, see prepareTick
+	private final Reference2IntMap<EnergyConnector> availableAtStart = new Reference2IntOpenHashMap<>();
+	private final Reference2IntMap<EnergyConnector> requestedAtStart = new Reference2IntOpenHashMap<>();
+	// The last computed plan and its inputs. Limits and connectors only change along with the transfer paths
+	@Nullable
+	private TransferPlan cachedPlan;
+	private int transferPathsVersion = 0;
+	private int cachedPlanPathsVersion = -1;
+	private final Reference2IntMap<EnergyConnector> cachedAvailable = new Reference2IntOpenHashMap<>();
+	private final Reference2IntMap<EnergyConnector> cachedRequested = new Reference2IntOpenHashMap<>();
+	private long planCacheHits = 0;
+	private long planCacheMisses = 0;
 	HashMap<Connection, List<Double>> limits = new HashMap<>();
+	// Per point of the tree being transferred through, indexed by point ID, only used in transferPower
+	private double[] insertedAtSource = new double[0];
+	private double[] passedOnAtSource = new double[0];
+	private Connection[] limitedConnections = new Connection[0];
 
 	public EnergyTransferHandler(LocalWireNetwork net, GlobalWireNetwork global)
 	{
 		super(net, global);
 	}
 
+	/**
+	 * Called on the handler of the net absorbing the other one. No connection between the two nets exists yet, so the
+	 * paths of this handler are still correct. Connecting the nets afterwards invalidates the paths the new connection
+	 * can improve in {@link #onConnectionAdded(Connection)}, so only the points of the absorbed net have to be added.
+	 */
 	@Override
 	public LocalNetworkHandler merge(LocalNetworkHandler other)
 	{
-		reset();
+		if(!(other instanceof EnergyTransferHandler otherEnergy))
+		{
+			reset();
+			return this;
+		}
+		++topologyVersion;
+		// The net of the other handler is still the absorbed net, it is only discarded after merging
+		for(ConnectionPoint cp : otherEnergy.localNet.getConnectionPoints())
+			markDirty(cp);
+		// The nets have no connections in common
+		transferredNextTick.putAll(otherEnergy.transferredNextTick);
+		transferredLastTick.putAll(otherEnergy.transferredLastTick);
 		return this;
 	}
 
 	@Override
 	public void onConnectorLoaded(ConnectionPoint p, IImmersiveConnectable iic)
 	{
-		reset();//TODO slightly more intelligent behavior
+		// Paths only depend on the connections, so this only changes which points are sources and sinks
+		markDirty(p);
 	}
 
 	@Override
 	public void onConnectorUnloaded(BlockPos p, IImmersiveConnectable iic)
 	{
-		reset();//TODO slightly more intelligent behavior
+		for(ConnectionPoint cp : iic.getConnectionPoints())
+			markDirty(cp);
 	}
 
 	@Override
 	public void onConnectorRemoved(BlockPos p, IImmersiveConnectable iic)
 	{
-		reset();
+		// The connections of the connector are dropped without notifying the handlers, so every path reaching it
+		// may have used one of them
+		++topologyVersion;
+		for(ConnectionPoint cp : iic.getConnectionPoints())
+		{
+			markDirty(cp);
+			final int id = pointIds.get(cp);
+			pathTrees.values().removeIf(tree -> tree.isSettled(id));
+		}
 	}
 
 	@Override
 	public void onConnectionAdded(Connection c)
 	{
-		reset();
+		++topologyVersion;
+		markDirty(c.getEndA());
+		markDirty(c.getEndB());
+		final double loss = getBasicLoss(c);
+		final int idA = pointIds.get(c.getEndA());
+		final int idB = pointIds.get(c.getEndB());
+		pathTrees.values().removeIf(tree -> canImprove(tree, idA, idB, loss)||canImprove(tree, idB, idA, loss));
 	}
 
 	@Override
 	public void onConnectionRemoved(Connection c)
 	{
-		reset();
+		++topologyVersion;
+		markDirty(c.getEndA());
+		markDirty(c.getEndB());
+		final int idA = pointIds.get(c.getEndA());
+		final int idB = pointIds.get(c.getEndB());
+		pathTrees.values().removeIf(tree -> tree.usesConnection(idA, c)||tree.usesConnection(idB, c));
+		limits.remove(c);
+		transferredNextTick.removeDouble(c);
+		transferredLastTick.removeDouble(c);
+	}
+
+	private void markDirty(ConnectionPoint cp)
+	{
+		dirtyPoints.add(cp);
+		transferPathsInitialized = false;
+	}
+
+	/**
+	 * @return whether the given shortest paths would change if a connection with the given loss from one point to
+	 * another was added
+	 */
+	private static boolean canImprove(PathTree tree, int from, int to, double loss)
+	{
+		// Points without a path are unreachable or only reachable with a loss of at least 1
+		final double lossToStart = tree.getLossOrOne(from);
+		if(lossToStart >= 1)
+			return false;
+		return lossToStart+(1-lossToStart)*loss < tree.getLossOrOne(to);
+	}
+
+	@Override
+	public void prepareTick(Level w)
+	{
+		updateSourcesAndSinks();
+		availableAtStart.clear();
+		requestedAtStart.clear();
+		for(EnergyConnector source : sources.values())
+			availableAtStart.put(source, source.getAvailableEnergy());
+		for(EnergyConnector sink : sinks.values())
+			requestedAtStart.put(sink, sink.getRequestedEnergy());
 	}
 
 	@Override
-	public void update(Level w)
+	public TransferPlan computeTick()
 	{
-		transferPower();
+		updateTransferPaths();
+		// With the same paths and the same energy at every source and sink the plan would be exactly the same
+		if(cachedPlan!=null&&cachedPlanPathsVersion==transferPathsVersion&&
+				sameValues(availableAtStart, cachedAvailable)&&sameValues(requestedAtStart, cachedRequested))
+		{
+			++planCacheHits;
+			return cachedPlan;
+		}
+		++planCacheMisses;
+		cachedPlan = transferPower();
+		cachedPlanPathsVersion = transferPathsVersion;
+		cachedAvailable.clear();
+		cachedAvailable.putAll(availableAtStart);
+		cachedRequested.clear();
+		cachedRequested.putAll(requestedAtStart);
+		return cachedPlan;
+	}
+
+	/**
+	 * Builds the plan again without using or updating the cached plan, and without counting towards the cache stats
+	 */
+	@Override
+	public TransferPlan recomputeTick()
+	{
+		return transferPower();
+	}
+
+	private static boolean sameValues(Reference2IntMap<EnergyConnector> current, Reference2IntMap<EnergyConnector> cached)
+	{
+		if(current.size()!=cached.size())
+			return false;
+		for(Reference2IntMap.Entry<EnergyConnector> entry : Reference2IntMaps.fastIterable(current))
+			if(!cached.containsKey(entry.getKey())||cached.getInt(entry.getKey())!=entry.getIntValue())
+				return false;
+		return true;
+	}
+
+	/**
+	 * @return how often the transfer plan of the previous tick could be reused since this handler was created
+	 */
+	public PlanCacheStats getPlanCacheStats()
+	{
+		return new PlanCacheStats(planCacheHits, planCacheMisses);
+	}
+
+	@Override
+	public void commitTick(Level w, TransferPlan plan)
+	{
+		for(PlannedTransfer transfer : plan.transfers())
+			switch(transfer.action())
+			{
+				case PASS_THROUGH -> transfer.connector().onEnergyPassedThrough(transfer.amount());
+				case INSERT -> transfer.connector().insertEnergy((int)transfer.amount());
+				case EXTRACT -> transfer.connector().extractEnergy((int)transfer.amount());
+			}
+		for(Object2DoubleMap.Entry<Connection> entry : plan.transferred().object2DoubleEntrySet())
+			transferredNextTick.addTo(entry.getKey(), entry.getDoubleValue());
 		transferredLastTick = transferredNextTick;
 		transferredNextTick = new Object2DoubleOpenHashMap<>();
 		burnOverloaded(w);
@@ -114,15 +270,24 @@ public class EnergyTransferHandler extends LocalNetworkHandler implements IWorld
 
 	private void reset()
 	{
-		energyPaths.clear();
 		transferredNextTick.clear();
 		transferredLastTick.clear();
 		sinks.clear();
 		sources.clear();
 		transferPaths.clear();
+		pathTrees.clear();
+		pointIds.clear();
+		graph = null;
+		++topologyVersion;
 		sourceSinkMapInitialized = false;
+		transferPathsInitialized = false;
+		dirtyPoints.clear();
 		limits.clear();
-		;
+		availableAtStart.clear();
+		requestedAtStart.clear();
+		cachedPlan = null;
+		cachedAvailable.clear();
+		cachedRequested.clear();
 	}
 
 	public Map<ConnectionPoint, EnergyConnector> getSources()
@@ -131,6 +296,12 @@ public class EnergyTransferHandler extends LocalNetworkHandler implements IWorld
 		return sources;
 	}
 
+	public Map<ConnectionPoint, EnergyConnector> getSinks()
+	{
+		updateSourcesAndSinks();
+		return sinks;
+	}
+
 	/**
 	 * @return shortest (w.r.t. base loss) path from source to sink. null if there is no path with base loss <1
 	 */
@@ -140,166 +311,285 @@ public class EnergyTransferHandler extends LocalNetworkHandler implements IWorld
 		return getPathsFromSource(source).get(sink);
 	}
 
+	/**
+	 * @return shortest paths from the given point to all points that can be reached with a base loss below 1, and
+	 * possibly one point with a higher loss. The paths are only created when they are requested, so the result should
+	 * not be kept after the net changes.
+	 */
 	public Map<ConnectionPoint, Path> getPathsFromSource(ConnectionPoint source)
 	{
-		Map<ConnectionPoint, Path> mutableResult = energyPaths.get(source);
-		if(mutableResult==null)
+		updateSourcesAndSinks();
+		PathTree tree = getPathTree(source);
+		if(tree==null)
+			return Map.of(source, new Path(source));
+		return new PathMap(tree);
+	}
+
+	/**
+	 * @return the shortest path tree rooted at the given point, or null if the point has no connections
+	 */
+	@Nullable
+	private PathTree getPathTree(ConnectionPoint source)
+	{
+		PathTree tree = pathTrees.get(source);
+		if(tree==null)
 		{
-			mutableResult = new HashMap<>();
-			Map<ConnectionPoint, Path> finalMutableResult = mutableResult;
-			runDijkstraWithSource(source, p -> finalMutableResult.put(p.end, p));
-			energyPaths.put(source, mutableResult);
+			EnergyGraph currentGraph = getGraph();
+			final int sourceId = pointIds.get(source);
+			if(sourceId < 0)
+				return null;
+			tree = runDijkstraWithSource(sourceId, currentGraph);
+			pathTrees.put(source, tree);
 		}
-		return Collections.unmodifiableMap(mutableResult);
+		return tree;
 	}
 
-	private void updateSourcesAndSinks()
+	private EnergyGraph getGraph()
 	{
-		if(sourceSinkMapInitialized)
-			return;
-		sourceSinkMapInitialized = true;
-		
-		for(ConnectionPoint cp : localNet.getConnectionPoints())
+		if(graph==null||graphVersion!=topologyVersion)
 		{
-			IImmersiveConnectable iic = localNet.getConnector(cp);
-			if(iic instanceof EnergyConnector energyIIC)
+			// IDs of removed points are only dropped when most IDs are unused, since that invalidates all trees
+			if(pointIds.size() > 2*localNet.getConnectionPoints().size()+16)
 			{
-				if(energyIIC.isSink(cp))
-					sinks.put(cp, energyIIC);
-				if(energyIIC.isSource(cp))
-					sources.put(cp, energyIIC);
-				if(energyIIC instanceof LimitingEnergyConnector limiting)
-					for(Connection c : localNet.getConnections(cp))
-						limits.put(c, Arrays.asList(limiting.getPowerLimit(), limiting.getPowerLimit()));
+				pointIds.clear();
+				pathTrees.clear();
+				transferPathsInitialized = false;
 			}
+			graph = EnergyGraph.build(localNet, pointIds);
+			graphVersion = topologyVersion;
 		}
+		return graph;
+	}
+
+	private void updateSourcesAndSinks()
+	{
+		if(!sourceSinkMapInitialized)
+		{
+			sourceSinkMapInitialized = true;
+			dirtyPoints.clear();
+			for(ConnectionPoint cp : localNet.getConnectionPoints())
+				updatePoint(cp);
+		}
+		else if(!dirtyPoints.isEmpty())
+		{
+			for(ConnectionPoint cp : dirtyPoints)
+				updatePoint(cp);
+			dirtyPoints.clear();
+		}
+	}
+
+	private void updatePoint(ConnectionPoint cp)
+	{
+		if(!localNet.getConnectionPoints().contains(cp))
+		{
+			sources.remove(cp);
+			sinks.remove(cp);
+			pathTrees.remove(cp);
+			return;
+		}
+		EnergyConnector energyIIC = localNet.getConnector(cp) instanceof EnergyConnector e?e: null;
+		if(energyIIC!=null&&energyIIC.isSource(cp))
+			sources.put(cp, energyIIC);
+		else
+			sources.remove(cp);
+		if(energyIIC!=null&&energyIIC.isSink(cp))
+			sinks.put(cp, energyIIC);
+		else
+			sinks.remove(cp);
+		for(Connection c : localNet.getConnections(cp))
+			updateLimit(c);
+	}
+
+	private void updateLimit(Connection c)
+	{
+		LimitingEnergyConnector limiting = null;
+		for(ConnectionPoint end : c.getEnds())
+			if(localNet.getConnector(end) instanceof LimitingEnergyConnector atEnd)
+				limiting = atEnd;
+		if(limiting!=null)
+			limits.put(c, Arrays.asList(limiting.getPowerLimit(), limiting.getPowerLimit()));
+		else
+			limits.remove(c);
+	}
+
+	// Only accesses the local net and this handler, so this is safe to call from computeTick
+	private void updateTransferPaths()
+	{
+		updateSourcesAndSinks();
+		if(transferPathsInitialized)
+			return;
+		// Rebuilding the graph may drop all trees and point IDs, which must not happen while the paths are collected
+		getGraph();
+		transferPathsInitialized = true;
+		++transferPathsVersion;
+		// Only the paths of sources whose tree was invalidated are computed again
+		transferPaths.clear();
 		for(Entry<ConnectionPoint, EnergyConnector> source : sources.entrySet())
 		{
-			Map<ConnectionPoint, Path> paths = getPathsFromSource(source.getKey());
+			PathTree tree = getPathTree(source.getKey());
+			if(tree==null)
+				continue;
 			List<SinkPath> sinkPaths = new ArrayList<>();
 			for(Entry<ConnectionPoint, EnergyConnector> sink : sinks.entrySet())
 			{
-				Path pathTo = paths.get(sink.getKey());
-				if(pathTo!=null)
-					sinkPaths.add(new SinkPath(sink.getKey(), sink.getValue(), pathTo));
+				final int sinkId = pointIds.get(sink.getKey());
+				if(tree.isSettled(sinkId))
+					sinkPaths.add(new SinkPath(sink.getKey(), sink.getValue(), sinkId, tree.loss[sinkId]));
 			}
-			transferPaths.add(new SinkPathsFromSource(source.getKey(), source.getValue(), sinkPaths));
+			transferPaths.add(new SinkPathsFromSource(source.getKey(), source.getValue(), tree, sinkPaths));
 		}
-		
 	}
 
-	private void runDijkstraWithSource(ConnectionPoint source, Consumer<Path> output)
+	private static PathTree runDijkstraWithSource(int source, EnergyGraph graph)
 	{
-		Map<ConnectionPoint, Path> shortestKnown = new HashMap<>();
-		BinaryHeap<ConnectionPoint> heap = new BinaryHeap<>(
-				Comparator.comparingDouble(end -> shortestKnown.get(end).loss));
-		Map<ConnectionPoint, HeapEntry<ConnectionPoint>> entryMap = new HashMap<>();
-		shortestKnown.put(source, new Path(source));
-		entryMap.put(source, heap.insert(source));
-		while(!heap.empty())
+		PathTree tree = new PathTree(source, graph.numNodes);
+		IndexedMinHeap heap = new IndexedMinHeap(graph.numNodes);
+		tree.loss[source] = 0;
+		tree.factor[source] = 1;
+		heap.insert(source, 0);
+		while(!heap.isEmpty())
 		{
-			ConnectionPoint endPoint = heap.extractMin();
-			entryMap.remove(endPoint);
-			Path shortest = shortestKnown.get(endPoint);
-			output.accept(shortest);
+			final int node = heap.extractMin();
+			tree.settle(node);
+			final double lossHere = tree.loss[node];
 			//Loss of 1 means no energy will be transferred, so the paths are irrelevant
-			if(shortest.loss >= 1)
+			if(lossHere >= 1)
 				break;
-			for(Connection next : localNet.getConnections(endPoint))
+			for(int edge = graph.firstEdge[node]; edge < graph.firstEdge[node+1]; ++edge)
 			{
-				Path alternative = shortest.append(next, sinks.containsKey(next.getOtherEnd(shortest.end)));
-				if(!shortestKnown.containsKey(alternative.end))
+				final int target = graph.edgeTarget[edge];
+				// Losses are never negative, so settled points can not be improved
+				if(tree.isSettled(target))
+					continue;
+				final double alternative = lossHere+(1-lossHere)*graph.edgeLoss[edge];
+				if(!heap.contains(target))
 				{
-					shortestKnown.put(alternative.end, alternative);
-					entryMap.put(alternative.end, heap.insert(alternative.end));
+					tree.setPredecessor(target, node, graph.edgeConnection[edge], alternative, graph.edgeLoss[edge]);
+					heap.insert(target, alternative);
 				}
-				else
+				else if(alternative < heap.getKey(target))
 				{
-					Path oldPath = shortestKnown.get(alternative.end);
-					if(alternative.loss < oldPath.loss)
-					{
-						shortestKnown.put(alternative.end, alternative);
-						heap.decreaseKey(entryMap.get(alternative.end));
-					}
+					tree.setPredecessor(target, node, graph.edgeConnection[edge], alternative, graph.edgeLoss[edge]);
+					heap.decreaseKey(target, alternative);
 				}
 			}
 		}
+		return tree;
 	}
 
-	private void transferPower()
+	/**
+	 * Computes the transfers for this tick without touching any connectors. Energy levels are taken from the snapshot
+	 * made in prepareTick and updated as the plan is built, so later sources see the effect of earlier ones.
+	 */
+	private TransferPlan transferPower()
 	{
-		updateSourcesAndSinks();
+		updateTransferPaths();
 		resetLimits();
-		
-		
+		Reference2IntMap<EnergyConnector> availableLeft = new Reference2IntOpenHashMap<>(availableAtStart);
+		Reference2IntMap<EnergyConnector> requestedLeft = new Reference2IntOpenHashMap<>(requestedAtStart);
+		List<PlannedTransfer> transfers = new ArrayList<>();
+		Object2DoubleOpenHashMap<Connection> transferred = new Object2DoubleOpenHashMap<>();
 		for(SinkPathsFromSource sourceData : transferPaths)
 		{
-			ConnectionPoint sourceCp = sourceData.sourceCP();
 			EnergyConnector source = sourceData.sourceConnector();
-			int available = source.getAvailableEnergy();
-			
-			
+			int available = availableLeft.getInt(source);
 			if(available <= 0)
 				continue;
+			PathTree tree = sourceData.tree();
+			prepareScratch(tree);
 			double maxSum = 0;
-			record OutputData(double amount, Path path, EnergyConnector output)
+			record OutputData(double amount, SinkPath path, EnergyConnector output)
 			{
 			}
 			List<OutputData> maxOut = new ArrayList<>(sourceData.paths().size());
 			for(SinkPath sinkEntry : sourceData.paths())
 			{
 				double limit = Double.MAX_VALUE;
-				Connection conn = null;
-				for(Connection c : sinkEntry.pathTo().conns)
-					if(limits.containsKey(c))
-					{
-						limit = limits.get(c).get(1);
-						conn = c;
-					}
+				Connection conn = limitedConnections[sinkEntry.node()];
+				if(conn!=null)
+					limit = limits.get(conn).get(1);
 				EnergyConnector sink = sinkEntry.sinkConnector();
-				int sinkRequested = sink.getRequestedEnergy();
-				
-				
-				int requested = (int)Math.min(sinkRequested, limit*(1-sinkEntry.pathTo().loss));
+				int sinkRequested = requestedLeft.getInt(sink);
+				int requested = (int)Math.min(sinkRequested, limit*(1-sinkEntry.loss()));
 				if(requested <= 0)
 					continue;
-				double requiredAtSource = Math.min(requested/(1-sinkEntry.pathTo().loss), available);
+				double requiredAtSource = Math.min(requested/(1-sinkEntry.loss()), available);
 				if(conn!=null)
 					limits.put(conn, Arrays.asList(limits.get(conn).get(0), limit-requiredAtSource));
-				maxOut.add(new OutputData(requiredAtSource, sinkEntry.pathTo(), sink));
+				maxOut.add(new OutputData(requiredAtSource, sinkEntry, sink));
 				maxSum += requiredAtSource;
 			}
 			if(maxSum==0)
 				continue;
-			
-			
+
 			double allowedFactor = Math.min(1, available/maxSum);
 			for(OutputData entry : maxOut)
 			{
-				Path path = entry.path();
+				final int sinkNode = entry.path().node();
 				double atSource = allowedFactor*entry.amount();
-				double availableFactor = 1;
-				ConnectionPoint currentPoint = sourceCp;
-				for(Connection c : path.conns)
-				{
-					currentPoint = c.getOtherEnd(currentPoint);
-					// We use exponential loss here so there is still some power at arbitrarily far distances
-					availableFactor *= (1-getBasicLoss(c));
-					double availableAtPoint = atSource*availableFactor;
-					transferredNextTick.addTo(c, availableAtPoint);
-					if(!currentPoint.equals(path.end))
-					{
-						IImmersiveConnectable iic = localNet.getConnector(currentPoint);
-						if(iic instanceof EnergyConnector)
-							((EnergyConnector)iic).onEnergyPassedThrough(availableAtPoint);
-					}
-				}
-				entry.output.insertEnergy(ceilIfClose(atSource*availableFactor));
+				insertedAtSource[sinkNode] += atSource;
+				int inserted = ceilIfClose(atSource*tree.factor[sinkNode]);
+				transfers.add(new PlannedTransfer(entry.output, TransferAction.INSERT, inserted));
+				requestedLeft.put(entry.output, Math.max(0, requestedLeft.getInt(entry.output)-inserted));
 			}
-			if(allowedFactor < 1)
-				source.extractEnergy(available);
+			addTreeFlows(tree, transfers, transferred);
+			int extracted = allowedFactor < 1?available: Mth.ceil(maxSum);
+			transfers.add(new PlannedTransfer(source, TransferAction.EXTRACT, extracted));
+			availableLeft.put(source, Math.max(0, available-extracted));
+		}
+		return new TransferPlan(transfers, transferred);
+	}
+
+	/**
+	 * Clears the scratch arrays for the points of the tree and finds the limited connection closest to each point on
+	 * its path from the source, in one pass from the source outwards
+	 */
+	private void prepareScratch(PathTree tree)
+	{
+		final int numNodes = tree.loss.length;
+		if(insertedAtSource.length < numNodes)
+		{
+			insertedAtSource = new double[numNodes];
+			passedOnAtSource = new double[numNodes];
+			limitedConnections = new Connection[numNodes];
+		}
+		for(int i = 0; i < tree.numSettled; ++i)
+		{
+			final int node = tree.settledOrder[i];
+			insertedAtSource[node] = 0;
+			passedOnAtSource[node] = 0;
+			if(node==tree.source)
+				limitedConnections[node] = null;
 			else
-				source.extractEnergy(Mth.ceil(maxSum));
+			{
+				Connection via = tree.predecessorConnection[node];
+				limitedConnections[node] = limits.containsKey(via)?via: limitedConnections[tree.predecessor[node]];
+			}
+		}
+	}
+
+	/**
+	 * Accumulates the energy inserted at each point of the tree towards the source, in one pass from the outermost
+	 * points inwards. The energy through a connection is the energy for all sinks behind it, scaled by the loss up to
+	 * the end of the connection, which is the sum of what each path through the connection would have added.
+	 * <br>
+	 * Each connector point between the source and a sink gets one pass-through call with the energy passing through
+	 * it to all sinks behind it, rather than one call per path.
+	 */
+	private void addTreeFlows(PathTree tree, List<PlannedTransfer> transfers, Object2DoubleOpenHashMap<Connection> transferred)
+	{
+		// Points are settled after their predecessor, so the reverse order visits all points behind a point first
+		for(int i = tree.numSettled-1; i > 0; --i)
+		{
+			final int node = tree.settledOrder[i];
+			final double passedOn = passedOnAtSource[node];
+			final double total = insertedAtSource[node]+passedOn;
+			if(total <= 0)
+				continue;
+			transferred.addTo(tree.predecessorConnection[node], total*tree.factor[node]);
+			passedOnAtSource[tree.predecessor[node]] += total;
+			if(passedOn > 0&&localNet.getConnector(pointIds.getPoint(node)) instanceof EnergyConnector passedThrough)
+				transfers.add(new PlannedTransfer(passedThrough, TransferAction.PASS_THROUGH, passedOn*tree.factor[node]));
 		}
 	}
 
@@ -319,11 +609,16 @@ public class EnergyTransferHandler extends LocalNetworkHandler implements IWorld
 			if(c.type instanceof IEnergyWire&&((IEnergyWire)c.type).shouldBurn(c, transferred))
 				toBurn.add(Pair.of(c, transferred));
 		}
-		for(Pair<Connection, Double> c : toBurn)
-			((IEnergyWire)c.getFirst().type).burn(c.getFirst(), c.getSecond(), globalNet, world);
+		if(toBurn.isEmpty())
+			return;
+		// Each wire burns through its own hook, the removals it makes are collected and applied together
+		globalNet.batchRemovals(() -> {
+			for(Pair<Connection, Double> c : toBurn)
+				((IEnergyWire)c.getFirst().type).burn(c.getFirst(), c.getSecond(), globalNet, world);
+		});
 	}
 
-	private static double getBasicLoss(Connection c)
+	static double getBasicLoss(Connection c)
 	{
 		if(c.isInternal())
 			return 0;
@@ -399,9 +694,23 @@ public class EnergyTransferHandler extends LocalNetworkHandler implements IWorld
 			return power > getTransferRate();
 		}
 
+		/**
+		 * Called for each overloaded wire. All wires burnt in one tick are burnt inside one
+		 * {@link GlobalWireNetwork#batchRemovals(Runnable)} call, so wires removed here are only actually removed from
+		 * the network once all of them have been burnt.
+		 */
 		default void burn(Connection c, double power, GlobalWireNetwork net, Level w)
 		{
 			net.removeConnection(c);
+			onBurnt(c, power, w);
+		}
+
+		/**
+		 * Called by the default {@link #burn} once the removal of an overloaded wire was requested, e.g. to spawn
+		 * effects
+		 */
+		default void onBurnt(Connection c, double power, Level w)
+		{
 			if(w instanceof ServerLevel)
 			{
 				final int numPoints = 16;
@@ -416,6 +725,12 @@ public class EnergyTransferHandler extends LocalNetworkHandler implements IWorld
 		}
 	}
 
+	/**
+	 * The available and requested energy are read once per tick, before any energy is moved in the net. While planning
+	 * the tick, inserting is assumed to lower the requested energy by the inserted amount, and extracting to lower the
+	 * available energy by the extracted amount. A connector that reports the same demand again after an insert is
+	 * therefore not supplied twice by two sources in the same tick. This holds with and without parallel ticking.
+	 */
 	public interface EnergyConnector extends IImmersiveConnectable
 	{
 		boolean isSource(ConnectionPoint cp);
@@ -440,6 +755,10 @@ public class EnergyTransferHandler extends LocalNetworkHandler implements IWorld
 		{
 		}
 
+		/**
+		 * Called once per source and tick for each point of this connector that energy from the source passes through,
+		 * with the sum of the energy passing through the point on its way to all sinks behind it
+		 */
 		default void onEnergyPassedThrough(double amount)
 		{
 		}
@@ -450,12 +769,196 @@ public class EnergyTransferHandler extends LocalNetworkHandler implements IWorld
 		double getPowerLimit();
 	}
 
-	private record SinkPath(ConnectionPoint sinkCP, EnergyConnector sinkConnector, Path pathTo)
+	public enum TransferAction
+	{
+		PASS_THROUGH, INSERT, EXTRACT
+	}
+
+	public record PlannedTransfer(EnergyConnector connector, TransferAction action, double amount)
+	{
+	}
+
+	/**
+	 * Result of the compute phase: connector calls in the order the sequential transfer would make them, and the
+	 * energy transferred through each connection
+	 */
+	public record TransferPlan(List<PlannedTransfer> transfers, Object2DoubleMap<Connection> transferred)
+	{
+	}
+
+	public record PlanCacheStats(long hits, long misses)
+	{
+		public double hitRate()
+		{
+			final long total = hits+misses;
+			return total > 0?hits/(double)total: 0;
+		}
+	}
+
+	private record SinkPath(ConnectionPoint sinkCP, EnergyConnector sinkConnector, int node, double loss)
+	{
+	}
+
+	/**
+	 * Result of a shortest path search from one point, stored as predecessors instead of complete paths. All arrays are
+	 * indexed by point ID. Only points settled before the search stopped have a path, and points that received an ID
+	 * after the search are outside the arrays.
+	 */
+	private static final class PathTree
+	{
+		final int source;
+		final double[] loss;
+		// Fraction of the energy leaving the source that arrives at each point, multiplied along the path in order
+		final double[] factor;
+		final int[] predecessor;
+		final Connection[] predecessorConnection;
+		private final boolean[] settled;
+		// Settled points in the order they were settled, i.e. by increasing loss
+		final int[] settledOrder;
+		int numSettled = 0;
+
+		PathTree(int source, int numNodes)
+		{
+			this.source = source;
+			this.loss = new double[numNodes];
+			this.factor = new double[numNodes];
+			this.predecessor = new int[numNodes];
+			this.predecessorConnection = new Connection[numNodes];
+			this.settled = new boolean[numNodes];
+			this.settledOrder = new int[numNodes];
+			Arrays.fill(predecessor, -1);
+		}
+
+		void setPredecessor(int node, int pred, Connection via, double newLoss, double edgeLoss)
+		{
+			predecessor[node] = pred;
+			predecessorConnection[node] = via;
+			loss[node] = newLoss;
+			// We use exponential loss here so there is still some power at arbitrarily far distances
+			factor[node] = factor[pred]*(1-edgeLoss);
+		}
+
+		void settle(int node)
+		{
+			settled[node] = true;
+			settledOrder[numSettled++] = node;
+		}
+
+		boolean isSettled(int node)
+		{
+			return node >= 0&&node < settled.length&&settled[node];
+		}
+
+		double getLossOrOne(int node)
+		{
+			return isSettled(node)?loss[node]: 1;
+		}
+
+		/**
+		 * @return whether the path to the given point ends with the given connection. Every path extends the path to
+		 * the point before its last connection, so a connection is part of the tree iff this is true for one of its ends
+		 */
+		boolean usesConnection(int node, Connection c)
+		{
+			return isSettled(node)&&node!=source&&predecessorConnection[node].equals(c);
+		}
+
+		Connection[] getConnections(int node)
+		{
+			int length = 0;
+			for(int current = node; current!=source; current = predecessor[current])
+				++length;
+			Connection[] conns = new Connection[length];
+			for(int current = node, i = length-1; current!=source; current = predecessor[current], --i)
+				conns[i] = predecessorConnection[current];
+			return conns;
+		}
+	}
+
+	/**
+	 * Read-only view of a path tree that only creates the paths that are requested
+	 */
+	private final class PathMap extends AbstractMap<ConnectionPoint, Path>
 	{
+		private final PathTree tree;
+
+		private PathMap(PathTree tree)
+		{
+			this.tree = tree;
+		}
+
+		@Override
+		public Path get(Object key)
+		{
+			if(!(key instanceof ConnectionPoint cp))
+				return null;
+			final int node = pointIds.get(cp);
+			return tree.isSettled(node)?makePath(node): null;
+		}
+
+		@Override
+		public boolean containsKey(Object key)
+		{
+			return key instanceof ConnectionPoint cp&&tree.isSettled(pointIds.get(cp));
+		}
+
+		@Override
+		public int size()
+		{
+			return tree.numSettled;
+		}
+
+		@Nonnull
+		@Override
+		public Set<Entry<ConnectionPoint, Path>> entrySet()
+		{
+			return new AbstractSet<>()
+			{
+				@Nonnull
+				@Override
+				public Iterator<Entry<ConnectionPoint, Path>> iterator()
+				{
+					return new Iterator<>()
+					{
+						private int next = 0;
+
+						@Override
+						public boolean hasNext()
+						{
+							return next < tree.numSettled;
+						}
+
+						@Override
+						public Entry<ConnectionPoint, Path> next()
+						{
+							if(!hasNext())
+								throw new NoSuchElementException();
+							final int node = tree.settledOrder[next++];
+							return new SimpleImmutableEntry<>(pointIds.getPoint(node), makePath(node));
+						}
+					};
+				}
+
+				@Override
+				public int size()
+				{
+					return tree.numSettled;
+				}
+			};
+		}
+
+		private Path makePath(int node)
+		{
+			final ConnectionPoint start = pointIds.getPoint(tree.source);
+			if(node==tree.source)
+				return new Path(start);
+			final ConnectionPoint end = pointIds.getPoint(node);
+			return new Path(tree.getConnections(node), start, end, tree.loss[node], sinks.containsKey(end));
+		}
 	}
 
 	private record SinkPathsFromSource(
-			ConnectionPoint sourceCP, EnergyConnector sourceConnector, List<SinkPath> paths
+			ConnectionPoint sourceCP, EnergyConnector sourceConnector, PathTree tree, List<SinkPath> paths
 	)
 	{
 	}
@@ -0,0 +1,47 @@
+package com.miniverse.modularinfrastructure.api.wires.localhandlers;
+
+import net.minecraft.world.level.Level;
+
+/**
+ * A tickable handler whose tick can be split into a world-reading prepare phase, a compute phase that may run on a
+ * worker thread, and a world-writing commit phase. When parallel ticking is enabled the compute phases of all local
+ * nets run concurrently, otherwise the three phases simply run back to back in {@link #update(Level)}.
+ *
+ * @param <R> the result of the compute phase. Should implement equals, it is compared against a recompute from the
+ *            same prepared state when checking that parallel ticks are deterministic
+ */
+public interface IParallelTickable<R> extends IWorldTickable
+{
+	/**
+	 * Server thread. Read any world or block entity state the compute phase needs.
+	 */
+	void prepareTick(Level w);
+
+	/**
+	 * Any thread. Must only access this handler and its (unchanging) local net, and must return equal results when
+	 * called repeatedly after one {@link #prepareTick(Level)}.
+	 */
+	R computeTick();
+
+	/**
+	 * Any thread, same restrictions as {@link #computeTick()}. Used to check that parallel ticks are deterministic, so
+	 * it must compute the result again even if computeTick reuses earlier results, and must not affect later calls to
+	 * computeTick.
+	 */
+	default R recomputeTick()
+	{
+		return computeTick();
+	}
+
+	/**
+	 * Server thread. Apply the result of {@link #computeTick()} to the world.
+	 */
+	void commitTick(Level w, R result);
+
+	@Override
+	default void update(Level w)
+	{
+		prepareTick(w);
+		commitTick(w, computeTick());
+	}
+}
@@ -11,22 +11,27 @@ package com.miniverse.modularinfrastructure.api.wires.redstone;
 
 import com.miniverse.modularinfrastructure.api.IEApi;
 import com.miniverse.modularinfrastructure.api.wires.*;
-import com.miniverse.modularinfrastructure.api.wires.localhandlers.IWorldTickable;
+import com.miniverse.modularinfrastructure.api.wires.localhandlers.IParallelTickable;
 import com.miniverse.modularinfrastructure.api.wires.localhandlers.LocalNetworkHandler;
 import com.google.common.base.Preconditions;
+import it.unimi.dsi.fastutil.bytes.ByteArrayList;
+import it.unimi.dsi.fastutil.bytes.ByteList;
 import net.minecraft.core.BlockPos;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.level.Level;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
-public class RedstoneNetworkHandler extends LocalNetworkHandler implements IWorldTickable
+public class RedstoneNetworkHandler extends LocalNetworkHandler implements IParallelTickable<RedstoneNetworkHandler.RecomputedValues>
 {
 	public static final ResourceLocation ID = IEApi.ieLoc("redstone");
 	private byte[] totalValues = new byte[16];
 	private final Map<ConnectionPoint, byte[]> emittedValues = new HashMap<>();
 	private boolean updateNextTick = false;
+	// Values read from the connectors in prepareTick, null if no update is needed this tick
+	private Map<ConnectionPoint, byte[]> gatheredValues = null;
 
 	public RedstoneNetworkHandler(LocalWireNetwork local, GlobalWireNetwork global)
 	{
@@ -35,13 +40,31 @@ public class RedstoneNetworkHandler extends LocalNetworkHandler implements IWorl
 
 
 	@Override
-	public void update(Level w)
+	public void prepareTick(Level w)
 	{
 		if(updateNextTick)
 		{
-			updateValues();
+			gatheredValues = gatherEmitted();
 			updateNextTick = false;
 		}
+		else
+			gatheredValues = null;
+	}
+
+	@Override
+	public RecomputedValues computeTick()
+	{
+		if(gatheredValues==null)
+			return null;
+		return combine(gatheredValues);
+	}
+
+	@Override
+	public void commitTick(Level w, RecomputedValues result)
+	{
+		gatheredValues = null;
+		if(result!=null)
+			apply(result);
 	}
 
 	@Override
@@ -73,15 +96,31 @@ public class RedstoneNetworkHandler extends LocalNetworkHandler implements IWorl
 
 	public void updateValues()
 	{
-		totalValues = new byte[16];
-		emittedValues.clear();
+		apply(combine(gatherEmitted()));
+	}
+
+	private Map<ConnectionPoint, byte[]> gatherEmitted()
+	{
+		Map<ConnectionPoint, byte[]> emitted = new LinkedHashMap<>();
 		for(ConnectionPoint cp : localNet.getConnectionPoints())
 			if(localNet.getConnector(cp) instanceof IRedstoneConnector here)
-			{
-				byte[] output = getEmitted(here, cp);
-				emittedValues.put(cp, output);
-				fillWithMax(output, totalValues, totalValues);
-			}
+				emitted.put(cp, getEmitted(here, cp));
+		return emitted;
+	}
+
+	private static RecomputedValues combine(Map<ConnectionPoint, byte[]> emitted)
+	{
+		byte[] total = new byte[16];
+		for(byte[] output : emitted.values())
+			fillWithMax(output, total, total);
+		return new RecomputedValues(emitted, ByteArrayList.wrap(total));
+	}
+
+	private void apply(RecomputedValues values)
+	{
+		totalValues = values.totalValues().toByteArray();
+		emittedValues.clear();
+		emittedValues.putAll(values.emittedValues());
 		for(ConnectionPoint cp : localNet.getConnectionPoints())
 			if(localNet.getConnector(cp) instanceof IRedstoneConnector here)
 				here.onChange(cp, this);
@@ -147,4 +186,12 @@ public class RedstoneNetworkHandler extends LocalNetworkHandler implements IWorl
 		for(int i = 0; i < 16; ++i)
 			out[i] = (byte)Math.max(inA[i], inB[i]);
 	}
+
+	/**
+	 * Result of the compute phase. The emitted arrays are shared with the prepare phase, so equal results from the
+	 * same prepare phase compare equal
+	 */
+	public record RecomputedValues(Map<ConnectionPoint, byte[]> emittedValues, ByteList totalValues)
+	{
+	}
 }
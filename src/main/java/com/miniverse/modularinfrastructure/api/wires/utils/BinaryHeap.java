@@ -18,6 +18,11 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * @deprecated boxes every element and compares through the comparator on every probe. Shortest path searches should
+ * use {@link IndexedMinHeap}
+ */
+@Deprecated
 public class BinaryHeap<T>
 {
 	private final Comparator<T> compare;
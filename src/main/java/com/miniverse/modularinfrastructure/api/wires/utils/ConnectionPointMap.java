@@ -0,0 +1,232 @@
+package com.miniverse.modularinfrastructure.api.wires.utils;
+
+import com.miniverse.modularinfrastructure.api.wires.ConnectionPoint;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.minecraft.core.BlockPos;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * Map keyed by connection points. Entries are stored by packed block position (see {@link BlockPos#asLong()}), so
+ * lookups by block position and index do not need to create a {@link ConnectionPoint}. Blocks generally only have one
+ * or two points, so the entries for one block are kept in a short linked list.
+ * <br>
+ * This does not save memory: with one point per block it takes about 56 bytes per entry, a HashMap about 43. The
+ * entries keep their {@link ConnectionPoint} so that iterating the keys does not allocate either.
+ * <br>
+ * Null values are not supported, and the views do not support removal.
+ */
+public class ConnectionPointMap<V> extends AbstractMap<ConnectionPoint, V>
+{
+	private final Long2ObjectOpenHashMap<PointEntry<V>> byBlock = new Long2ObjectOpenHashMap<>();
+	private int size = 0;
+	@Nullable
+	private Set<Map.Entry<ConnectionPoint, V>> entrySet;
+
+	@Nullable
+	public V get(BlockPos pos, int index)
+	{
+		return get(pos.asLong(), index);
+	}
+
+	@Nullable
+	public V get(long packedPos, int index)
+	{
+		PointEntry<V> entry = findEntry(packedPos, index);
+		return entry!=null?entry.value: null;
+	}
+
+	public boolean containsKey(BlockPos pos, int index)
+	{
+		return findEntry(pos.asLong(), index)!=null;
+	}
+
+	@Override
+	public V get(Object key)
+	{
+		if(!(key instanceof ConnectionPoint cp))
+			return null;
+		return get(cp.position().asLong(), cp.index());
+	}
+
+	@Override
+	public boolean containsKey(Object key)
+	{
+		return key instanceof ConnectionPoint cp&&findEntry(cp.position().asLong(), cp.index())!=null;
+	}
+
+	@Override
+	public V put(ConnectionPoint key, V value)
+	{
+		Objects.requireNonNull(value);
+		final long packedPos = key.position().asLong();
+		PointEntry<V> head = byBlock.get(packedPos);
+		for(PointEntry<V> entry = head; entry!=null; entry = entry.next)
+			if(entry.key.index()==key.index())
+				return entry.setValue(value);
+		byBlock.put(packedPos, new PointEntry<>(key, value, head));
+		++size;
+		return null;
+	}
+
+	@Override
+	public V remove(Object key)
+	{
+		if(!(key instanceof ConnectionPoint cp))
+			return null;
+		final long packedPos = cp.position().asLong();
+		PointEntry<V> previous = null;
+		for(PointEntry<V> entry = byBlock.get(packedPos); entry!=null; previous = entry, entry = entry.next)
+			if(entry.key.index()==cp.index())
+			{
+				if(previous!=null)
+					previous.next = entry.next;
+				else if(entry.next!=null)
+					byBlock.put(packedPos, entry.next);
+				else
+					byBlock.remove(packedPos);
+				--size;
+				return entry.value;
+			}
+		return null;
+	}
+
+	@Override
+	public void clear()
+	{
+		byBlock.clear();
+		size = 0;
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return size==0;
+	}
+
+	@Nonnull
+	@Override
+	public Set<Map.Entry<ConnectionPoint, V>> entrySet()
+	{
+		if(entrySet==null)
+			entrySet = new AbstractSet<>()
+			{
+				@Nonnull
+				@Override
+				public Iterator<Map.Entry<ConnectionPoint, V>> iterator()
+				{
+					return new EntryIterator<>(byBlock.values().iterator());
+				}
+
+				@Override
+				public int size()
+				{
+					return size;
+				}
+			};
+		return entrySet;
+	}
+
+	@Nullable
+	private PointEntry<V> findEntry(long packedPos, int index)
+	{
+		for(PointEntry<V> entry = byBlock.get(packedPos); entry!=null; entry = entry.next)
+			if(entry.key.index()==index)
+				return entry;
+		return null;
+	}
+
+	private static final class PointEntry<V> implements Map.Entry<ConnectionPoint, V>
+	{
+		private final ConnectionPoint key;
+		private V value;
+		@Nullable
+		private PointEntry<V> next;
+
+		private PointEntry(ConnectionPoint key, V value, @Nullable PointEntry<V> next)
+		{
+			this.key = key;
+			this.value = value;
+			this.next = next;
+		}
+
+		@Override
+		public ConnectionPoint getKey()
+		{
+			return key;
+		}
+
+		@Override
+		public V getValue()
+		{
+			return value;
+		}
+
+		@Override
+		public V setValue(V value)
+		{
+			V old = this.value;
+			this.value = Objects.requireNonNull(value);
+			return old;
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			return o instanceof Map.Entry<?, ?> other&&key.equals(other.getKey())&&value.equals(other.getValue());
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return key.hashCode()^value.hashCode();
+		}
+
+		@Override
+		public String toString()
+		{
+			return key+"="+value;
+		}
+	}
+
+	private static final class EntryIterator<V> implements Iterator<Map.Entry<ConnectionPoint, V>>
+	{
+		private final ObjectIterator<PointEntry<V>> blocks;
+		@Nullable
+		private PointEntry<V> next;
+
+		private EntryIterator(ObjectIterator<PointEntry<V>> blocks)
+		{
+			this.blocks = blocks;
+			this.next = blocks.hasNext()?blocks.next(): null;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return next!=null;
+		}
+
+		@Override
+		public Map.Entry<ConnectionPoint, V> next()
+		{
+			if(next==null)
+				throw new NoSuchElementException();
+			PointEntry<V> ret = next;
+			if(ret.next!=null)
+				next = ret.next;
+			else
+				next = blocks.hasNext()?blocks.next(): null;
+			return ret;
+		}
+	}
+}
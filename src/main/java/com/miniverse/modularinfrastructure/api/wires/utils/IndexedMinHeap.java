@@ -0,0 +1,142 @@
+package com.miniverse.modularinfrastructure.api.wires.utils;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+
+/**
+ * Min-heap of int elements in {@code [0, capacity)} with double keys, for shortest path searches. Elements and keys are
+ * stored in primitive arrays, and the position of each element is tracked so that its key can be decreased in
+ * O(log n) without searching for it. Each node has {@link #ARITY} children, which keeps the heap shallow and makes
+ * decrease-key, the most common operation in Dijkstra, cheaper than in a binary heap.
+ */
+public class IndexedMinHeap
+{
+	public static final int ARITY = 4;
+	private static final int NOT_CONTAINED = -1;
+
+	private final int[] heap;
+	private final double[] keys;
+	// Position of each element in heap, or NOT_CONTAINED
+	private final int[] positions;
+	private int size = 0;
+
+	public IndexedMinHeap(int capacity)
+	{
+		this.heap = new int[capacity];
+		this.keys = new double[capacity];
+		this.positions = new int[capacity];
+		Arrays.fill(positions, NOT_CONTAINED);
+	}
+
+	public void insert(int element, double key)
+	{
+		Preconditions.checkArgument(positions[element]==NOT_CONTAINED, "%s is already in the heap", element);
+		keys[element] = key;
+		heap[size] = element;
+		positions[element] = size;
+		++size;
+		siftUp(size-1);
+	}
+
+	public void decreaseKey(int element, double newKey)
+	{
+		Preconditions.checkArgument(positions[element]!=NOT_CONTAINED, "%s is not in the heap", element);
+		Preconditions.checkArgument(!(newKey > keys[element]), "Key of %s increased", element);
+		keys[element] = newKey;
+		siftUp(positions[element]);
+	}
+
+	public int extractMin()
+	{
+		Preconditions.checkState(size > 0, "Heap is empty");
+		final int min = heap[0];
+		positions[min] = NOT_CONTAINED;
+		--size;
+		if(size > 0)
+		{
+			final int last = heap[size];
+			heap[0] = last;
+			positions[last] = 0;
+			siftDown(0);
+		}
+		return min;
+	}
+
+	public boolean contains(int element)
+	{
+		return positions[element]!=NOT_CONTAINED;
+	}
+
+	public double getKey(int element)
+	{
+		return keys[element];
+	}
+
+	public boolean isEmpty()
+	{
+		return size==0;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public void clear()
+	{
+		for(int i = 0; i < size; ++i)
+			positions[heap[i]] = NOT_CONTAINED;
+		size = 0;
+	}
+
+	private void siftUp(int position)
+	{
+		final int element = heap[position];
+		final double key = keys[element];
+		while(position > 0)
+		{
+			final int parentPos = (position-1)/ARITY;
+			final int parent = heap[parentPos];
+			if(!(keys[parent] > key))
+				break;
+			heap[position] = parent;
+			positions[parent] = position;
+			position = parentPos;
+		}
+		heap[position] = element;
+		positions[element] = position;
+	}
+
+	private void siftDown(int position)
+	{
+		final int element = heap[position];
+		final double key = keys[element];
+		while(true)
+		{
+			final int firstChild = position*ARITY+1;
+			if(firstChild >= size)
+				break;
+			final int lastChild = Math.min(firstChild+ARITY, size);
+			int minPos = firstChild;
+			double minKey = keys[heap[firstChild]];
+			for(int child = firstChild+1; child < lastChild; ++child)
+			{
+				final double childKey = keys[heap[child]];
+				if(childKey < minKey)
+				{
+					minPos = child;
+					minKey = childKey;
+				}
+			}
+			if(!(minKey < key))
+				break;
+			final int minElement = heap[minPos];
+			heap[position] = minElement;
+			positions[minElement] = position;
+			position = minPos;
+		}
+		heap[position] = element;
+		positions[element] = position;
+	}
+}
@@ -49,6 +49,9 @@ public class WireUtils
 	public static Connection raytraceWires(Level world, Vec3 start, Vec3 end, @Nullable Connection ignored)
 	{
 		GlobalWireNetwork global = GlobalWireNetwork.getNetwork(world);
+		// Collision data only exists on the server
+		if(world.isClientSide())
+			return global.getClientWires().raytrace(start, end, ignored);
 		WireCollisionData collisionData = global.getCollisionData();
 		AtomicReference<Connection> ret = new AtomicReference<>();
 		MutableDouble minDistSq = new MutableDouble(Double.POSITIVE_INFINITY);
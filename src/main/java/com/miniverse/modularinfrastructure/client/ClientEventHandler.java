@@ -1,6 +1,7 @@
 package com.miniverse.modularinfrastructure.client;
 
 import com.miniverse.modularinfrastructure.ModularInfrastructure;
+import com.miniverse.modularinfrastructure.api.wires.WireTypeRegistry;
 import com.miniverse.modularinfrastructure.item.PostBlockItem;
 import com.miniverse.modularinfrastructure.client.render.PostPreviewRenderer;
 import com.miniverse.modularinfrastructure.network.packets.UpdatePostItemWidthPacket;
@@ -12,6 +13,7 @@ import net.minecraft.world.item.ItemStack;
 import net.neoforged.api.distmarker.Dist;
 import net.neoforged.bus.api.SubscribeEvent;
 import net.neoforged.fml.common.EventBusSubscriber;
+import net.neoforged.neoforge.client.event.ClientPlayerNetworkEvent;
 import net.neoforged.neoforge.client.event.InputEvent;
 import net.neoforged.neoforge.client.event.RenderLevelStageEvent;
 import net.neoforged.neoforge.network.PacketDistributor;
@@ -72,6 +74,12 @@ public class ClientEventHandler {
         }
     }
     
+    @SubscribeEvent
+    public static void onLoggingOut(ClientPlayerNetworkEvent.LoggingOut event) {
+        // The wire type IDs of this server must not be used for the next (possibly integrated) server
+        WireTypeRegistry.setSyncedNames(null);
+    }
+    
     @SubscribeEvent
     public static void onRenderLevelStage(RenderLevelStageEvent event) {
         if (event.getStage() == RenderLevelStageEvent.Stage.AFTER_TRANSLUCENT_BLOCKS) {
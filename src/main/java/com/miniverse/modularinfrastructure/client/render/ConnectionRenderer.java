@@ -15,7 +15,7 @@ import com.miniverse.modularinfrastructure.api.wires.Connection;
 import com.miniverse.modularinfrastructure.api.wires.Connection.CatenaryData;
 import com.miniverse.modularinfrastructure.api.wires.ConnectionPoint;
 import com.miniverse.modularinfrastructure.api.wires.GlobalWireNetwork;
-import com.miniverse.modularinfrastructure.api.wires.WireCollisionData.ConnectionSegments;
+import com.miniverse.modularinfrastructure.api.wires.ClientWireStore.WireSegments;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
@@ -77,18 +77,18 @@ public class ConnectionRenderer implements ResourceManagerReloadListener
 		final BlockPos origin = ev.getSectionOrigin();
 		final SectionPos section = SectionPos.of(origin);
 		final GlobalWireNetwork globalNet = GlobalWireNetwork.getNetwork(ev.getLevel());
-		final List<ConnectionSegments> connectionParts = globalNet.getCollisionData().getWiresIn(section);
+		final List<WireSegments> connectionParts = globalNet.getClientWires().getWiresIn(section);
 		if(connectionParts!=null&&!connectionParts.isEmpty())
 			ev.addRenderer(context -> renderConnectionsInSection(origin, context, connectionParts));
 	}
 
 	public static void renderConnectionsInSection(
-			BlockPos sectionOrigin, SectionRenderingContext context, List<ConnectionSegments> segments
+			BlockPos sectionOrigin, SectionRenderingContext context, List<WireSegments> segments
 	)
 	{
 		final VertexConsumer builder = context.getOrCreateChunkBuffer(RenderType.solid());
 		final PoseStack transform = context.getPoseStack();
-		for(ConnectionSegments connection : segments)
+		for(WireSegments connection : segments)
 		{
 			transform.pushPose();
 			ConnectionPoint connectionOrigin = connection.connection().getEndA();
@@ -104,7 +104,7 @@ public class ConnectionRenderer implements ResourceManagerReloadListener
 
 	public static void renderSegments(
 			VertexConsumer out,
-			ConnectionSegments toRender,
+			WireSegments toRender,
 			BlockAndTintGetter level,
 			PoseStack transform
 	)
@@ -118,7 +118,7 @@ public class ConnectionRenderer implements ResourceManagerReloadListener
 		     connection.type == com.miniverse.modularinfrastructure.common.wires.ModWireTypes.DENSE_CABLE)) {
 			color = com.miniverse.modularinfrastructure.integration.ae2.AE2DataCableRenderer.getDataCableColor(connection, fullLevel);
 		} else {
-			color = connection.type.getColour(connection);
+			color = toRender.colour();
 		}
 		double radius = connection.type.getRenderDiameter()/2;
 		int lastLight = 0;
@@ -1,9 +1,10 @@
 package com.miniverse.modularinfrastructure.common.commands;
 
+import com.miniverse.modularinfrastructure.api.utils.DeferredTaskQueue;
 import com.miniverse.modularinfrastructure.api.wires.Connection;
 import com.miniverse.modularinfrastructure.api.wires.GlobalWireNetwork;
 import com.miniverse.modularinfrastructure.api.wires.LocalWireNetwork;
-import com.miniverse.modularinfrastructure.api.wires.utils.WireUtils;
+import com.miniverse.modularinfrastructure.api.wires.localhandlers.EnergyTransferHandler;
 import com.mojang.brigadier.CommandDispatcher;
 import com.mojang.brigadier.arguments.IntegerArgumentType;
 import com.mojang.brigadier.builder.LiteralArgumentBuilder;
@@ -31,6 +32,12 @@ public class WireUpdateCommand {
                         IntegerArgumentType.getInteger(context, "radius")
                     ))
                 )
+            )
+            .then(Commands.literal("tasks")
+                .executes(context -> reportDeferredTasks(context.getSource()))
+            )
+            .then(Commands.literal("energy")
+                .executes(context -> reportEnergyPlanCache(context.getSource()))
             );
         
         dispatcher.register(command);
@@ -95,6 +102,37 @@ public class WireUpdateCommand {
         return updatedCount;
     }
     
+    private static int reportDeferredTasks(CommandSourceStack source) {
+        DeferredTaskQueue.Stats stats = DeferredTaskQueue.getStats(source.getLevel());
+        source.sendSuccess(() -> Component.literal(String.format(
+            "Deferred tasks: %d queued, %d run last tick in %.2f ms (max %.2f ms)",
+            stats.queued(), stats.ranLastTick(), stats.lastDrainNanos()/1e6, stats.maxDrainNanos()/1e6
+        )), false);
+        return stats.queued();
+    }
+    
+    private static int reportEnergyPlanCache(CommandSourceStack source) {
+        long hits = 0;
+        long misses = 0;
+        int handlers = 0;
+        for (LocalWireNetwork localNet : GlobalWireNetwork.getNetwork(source.getLevel()).getLocalNets()) {
+            EnergyTransferHandler handler = localNet.getHandler(EnergyTransferHandler.ID, EnergyTransferHandler.class);
+            if (handler != null) {
+                EnergyTransferHandler.PlanCacheStats stats = handler.getPlanCacheStats();
+                hits += stats.hits();
+                misses += stats.misses();
+                handlers++;
+            }
+        }
+        EnergyTransferHandler.PlanCacheStats total = new EnergyTransferHandler.PlanCacheStats(hits, misses);
+        final int numHandlers = handlers;
+        source.sendSuccess(() -> Component.literal(String.format(
+            "Energy plans: %d reused, %d computed (%.1f%% hit rate) in %d networks",
+            total.hits(), total.misses(), total.hitRate()*100, numHandlers
+        )), false);
+        return (int)total.hits();
+    }
+    
     private static int updateConnections(GlobalWireNetwork globalNet, Collection<Connection> connections) {
         int count = 0;
         
@@ -104,17 +142,12 @@ public class WireUpdateCommand {
                 continue;
             }
             
-            // Calculate new offsets based on current config
-            Vec3 newOffsetA = WireUtils.getConnectionOffset(globalNet, conn.getEndA(), conn.getEndB(), conn.type);
-            Vec3 newOffsetB = WireUtils.getConnectionOffset(globalNet, conn.getEndB(), conn.getEndA(), conn.type);
-            
-            // Reset the catenary data with new offsets
-            conn.resetCatenaryData(newOffsetA, newOffsetB);
+            // Recalculate offsets based on current config. This also marks the local net and the network as
+            // changed, so the new offsets are saved and synced
+            globalNet.updateCatenaryData(conn);
             count++;
         }
         
-        // Network will be saved automatically as SavedData
-        
         return count;
     }
 }
\ No newline at end of file
@@ -17,9 +17,23 @@ public class IEServerConfig {
         CONFIG_SPEC = builder.build();
     }
     
+    /**
+     * @return the configured value, or its default while the server config is not loaded
+     */
+    public static <T> T getOrDefault(ConfigValue<T> value) {
+        return CONFIG_SPEC.isLoaded() ? value.get() : value.getDefault();
+    }
+    
     public static class Wires {
         public final BooleanValue enableWireDamage;
         public final BooleanValue blocksBreakWires;
+        public final BooleanValue parallelTicking;
+        public final BooleanValue checkParallelDeterminism;
+        public final BooleanValue encodeInBackground;
+        public final BooleanValue lazyLoading;
+        public final BooleanValue journalChanges;
+        public final IntValue deferredTaskBudgetMicros;
+        public final IntValue chunkSyncPacketsPerTick;
         public final Map<IEWireTypes.IEWireType, WireConfig> wireConfigs = new EnumMap<>(IEWireTypes.IEWireType.class);
         public final Map<IEWireTypes.IEWireType, EnergyWireConfig> energyWireConfigs = new EnumMap<>(IEWireTypes.IEWireType.class);
         
@@ -72,6 +86,34 @@ public class IEServerConfig {
             blocksBreakWires = builder
                 .comment("If this is enabled, placing a block in a wire will break it (drop the wire coil)")
                 .define("blocksBreakWires", true);
+            
+            parallelTicking = builder
+                .comment("If this is enabled, the energy and redstone calculations of separate wire networks run in parallel on worker threads. World changes are still applied on the server thread. Networks that share a connector with another network are still updated one after the other. All other networks read their energy levels before any of them moves energy, so two networks feeding the same machine through different connectors may both see its full demand")
+                .define("parallelTicking", false);
+            
+            checkParallelDeterminism = builder
+                .comment("Debug option: if this and parallelTicking are enabled, every parallel calculation is repeated on the server thread from the same start-of-tick energy levels and mismatches are logged. This only finds calculations that are not deterministic. It does not compare against the sequential update, where later networks see the energy moved by earlier ones. This is slower than not using parallelTicking at all")
+                .define("checkParallelDeterminism", false);
+            
+            encodeInBackground = builder
+                .comment("If this is enabled, wire networks that changed are encoded for saving on a background thread shortly after the change, instead of during the world save")
+                .define("encodeInBackground", true);
+            
+            lazyLoading = builder
+                .comment("If this is enabled, saved wire networks are only loaded once a chunk containing one of their connectors is accessed. Networks that are never accessed are saved unchanged")
+                .define("lazyLoading", false);
+            
+            journalChanges = builder
+                .comment("If this is enabled, wire changes are written to a journal file in the dimension's data folder as they happen. If the server stops without saving, the journal is replayed on the next start")
+                .define("journalChanges", true);
+            
+            deferredTaskBudgetMicros = builder
+                .comment("The maximum time in microseconds spent on deferred wire tasks (e.g. syncing newly watched chunks) per dimension and tick. Remaining tasks are run in later ticks, at least one task runs per tick")
+                .defineInRange("deferredTaskBudgetMicros", 2000, 1, 50000);
+            
+            chunkSyncPacketsPerTick = builder
+                .comment("The maximum number of chunks with wires that are synced to each player per tick when they start watching new chunks, e.g. after logging in or teleporting. Chunks closest to the player are synced first")
+                .defineInRange("chunkSyncPacketsPerTick", 16, 1, 1024);
                 
             builder.pop();
         }
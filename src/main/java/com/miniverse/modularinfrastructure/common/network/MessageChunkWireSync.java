@@ -0,0 +1,121 @@
+package com.miniverse.modularinfrastructure.common.network;
+
+import com.miniverse.modularinfrastructure.api.wires.ConnectionPoint;
+import com.miniverse.modularinfrastructure.api.wires.GlobalWireNetwork;
+import com.miniverse.modularinfrastructure.api.wires.WireLogger;
+import com.miniverse.modularinfrastructure.api.wires.WireType;
+import com.miniverse.modularinfrastructure.api.wires.WireTypeRegistry;
+import com.miniverse.modularinfrastructure.common.network.MessageWireSync.Operation;
+import io.netty.buffer.ByteBuf;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import net.minecraft.client.Minecraft;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.network.VarInt;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.phys.Vec3;
+import net.neoforged.api.distmarker.Dist;
+import net.neoforged.api.distmarker.OnlyIn;
+import net.neoforged.neoforge.network.handling.IPayloadContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * All wires of one chunk that a player started or stopped watching, replacing one {@link MessageWireSync} per wire.
+ * Positions are encoded as zigzag varint offsets from the chunk origin and wire end offsets use
+ * {@link SyncedConnection#OFFSET_CODEC}, so a wire inside the chunk usually takes about 12 bytes.
+ */
+public record MessageChunkWireSync(
+		ChunkPos chunk, Operation operation, List<SyncedConnection> connections
+) implements CustomPacketPayload
+{
+	public static final Type<MessageChunkWireSync> ID = new Type<>(ResourceLocation.fromNamespaceAndPath(com.miniverse.modularinfrastructure.ModularInfrastructure.MOD_ID, "chunk_wire_sync"));
+	public static final StreamCodec<ByteBuf, MessageChunkWireSync> CODEC = StreamCodec.of(
+			(buf, msg) -> msg.write(buf), MessageChunkWireSync::read
+	);
+
+	private void write(ByteBuf buf)
+	{
+		buf.writeLong(chunk.toLong());
+		buf.writeByte(operation.ordinal());
+		VarInt.write(buf, connections.size());
+		BlockPos origin = chunk.getWorldPosition();
+		for(SyncedConnection conn : connections)
+		{
+			writePoint(buf, origin, conn.start());
+			writePoint(buf, origin, conn.end());
+			WireTypeRegistry.STREAM_CODEC.encode(buf, conn.type());
+			// Only ADD needs the offsets, everything else only identifies the wire
+			if(operation==Operation.ADD)
+			{
+				SyncedConnection.OFFSET_CODEC.encode(buf, conn.offsetStart());
+				SyncedConnection.OFFSET_CODEC.encode(buf, conn.offsetEnd());
+			}
+		}
+	}
+
+	private static MessageChunkWireSync read(ByteBuf buf)
+	{
+		ChunkPos chunk = new ChunkPos(buf.readLong());
+		Operation operation = Operation.values()[buf.readByte()];
+		int numConnections = VarInt.read(buf);
+		List<SyncedConnection> connections = new ArrayList<>(numConnections);
+		BlockPos origin = chunk.getWorldPosition();
+		for(int i = 0; i < numConnections; ++i)
+		{
+			ConnectionPoint start = readPoint(buf, origin);
+			ConnectionPoint end = readPoint(buf, origin);
+			WireType type = WireTypeRegistry.STREAM_CODEC.decode(buf);
+			Vec3 offsetStart = Vec3.ZERO;
+			Vec3 offsetEnd = Vec3.ZERO;
+			if(operation==Operation.ADD)
+			{
+				offsetStart = SyncedConnection.OFFSET_CODEC.decode(buf);
+				offsetEnd = SyncedConnection.OFFSET_CODEC.decode(buf);
+			}
+			connections.add(new SyncedConnection(start, end, type, offsetStart, offsetEnd));
+		}
+		return new MessageChunkWireSync(chunk, operation, connections);
+	}
+
+	@OnlyIn(Dist.CLIENT)
+	public void process(IPayloadContext context)
+	{
+		context.enqueueWork(() -> {
+			WireLogger.logger.debug("Processing sync for {} connections in {}, op {}", connections.size(), chunk, operation);
+			GlobalWireNetwork globalNet = GlobalWireNetwork.getNetwork(Minecraft.getInstance().player.level());
+			// Wires in one chunk mostly render in the same few sections, so each section is only marked dirty once
+			Set<SectionPos> sectionsToRerender = new ObjectOpenHashSet<>();
+			for(SyncedConnection conn : connections)
+				MessageWireSync.apply(globalNet, conn.toConnection(), operation, sectionsToRerender);
+			MessageWireSync.markSectionsDirty(sectionsToRerender);
+		});
+	}
+
+	private static void writePoint(ByteBuf buf, BlockPos origin, ConnectionPoint point)
+	{
+		VarInt.write(buf, SyncedConnection.zigzag(point.getX()-origin.getX()));
+		VarInt.write(buf, SyncedConnection.zigzag(point.getY()));
+		VarInt.write(buf, SyncedConnection.zigzag(point.getZ()-origin.getZ()));
+		VarInt.write(buf, point.index());
+	}
+
+	private static ConnectionPoint readPoint(ByteBuf buf, BlockPos origin)
+	{
+		int x = origin.getX()+SyncedConnection.unzigzag(VarInt.read(buf));
+		int y = SyncedConnection.unzigzag(VarInt.read(buf));
+		int z = origin.getZ()+SyncedConnection.unzigzag(VarInt.read(buf));
+		return new ConnectionPoint(new BlockPos(x, y, z), VarInt.read(buf));
+	}
+
+	@Override
+	public Type<? extends CustomPacketPayload> type()
+	{
+		return ID;
+	}
+}
@@ -10,7 +10,6 @@
 package com.miniverse.modularinfrastructure.common.network;
 
 import com.miniverse.modularinfrastructure.api.wires.*;
-import com.miniverse.modularinfrastructure.api.wires.utils.WireUtils;
 import io.netty.buffer.ByteBuf;
 import it.unimi.dsi.fastutil.objects.ObjectArraySet;
 import net.minecraft.client.Minecraft;
@@ -27,7 +26,6 @@ import net.neoforged.neoforge.network.handling.IPayloadContext;
 
 import java.util.Set;
 
-import static com.miniverse.modularinfrastructure.common.network.MessageWireSync.Operation.ADD;
 import static com.miniverse.modularinfrastructure.common.network.MessageWireSync.Operation.REMOVE;
 
 public record MessageWireSync(SyncedConnection connection, Operation operation) implements CustomPacketPayload
@@ -59,28 +57,33 @@ public record MessageWireSync(SyncedConnection connection, Operation operation)
 			Level w = player.level();
 
 			GlobalWireNetwork globalNet = GlobalWireNetwork.getNetwork(w);
-			Connection connection = this.connection.toConnection();
-			if(operation!=ADD&&globalNet.getNullableLocalNet(start)!=null&&globalNet.getNullableLocalNet(end)!=null)
-			{
-				globalNet.removeConnection(connection);
-				removeProxyIfNoWires(start, globalNet);
-				removeProxyIfNoWires(end, globalNet);
-			}
-			if(operation!=REMOVE)
-				globalNet.addConnection(connection);
 			Set<SectionPos> sectionsToRerender = new ObjectArraySet<>();
-			WireUtils.forEachRenderPoint(connection, ($, $2, section) -> sectionsToRerender.add(section));
-			for(SectionPos section : sectionsToRerender)
-				Minecraft.getInstance().levelRenderer.setSectionDirty(section.x(), section.y(), section.z());
+			apply(globalNet, this.connection.toConnection(), operation, sectionsToRerender);
+			markSectionsDirty(sectionsToRerender);
 		});
 	}
 
-	private void removeProxyIfNoWires(ConnectionPoint point, GlobalWireNetwork globalNet)
+	/**
+	 * Applies one synced change to the client-side wire store and collects the sections the wire is rendered in
+	 */
+	@OnlyIn(Dist.CLIENT)
+	static void apply(
+			GlobalWireNetwork globalNet, Connection connection, Operation operation, Set<SectionPos> sectionsToRerender
+	)
+	{
+		// The client only renders and raytraces wires, so no connectors or local nets are created for them
+		ClientWireStore wires = globalNet.getClientWires();
+		if(operation==REMOVE)
+			wires.remove(connection, sectionsToRerender);
+		else
+			wires.add(connection, sectionsToRerender);
+	}
+
+	@OnlyIn(Dist.CLIENT)
+	static void markSectionsDirty(Set<SectionPos> sections)
 	{
-		LocalWireNetwork localNet = globalNet.getLocalNet(point);
-		IImmersiveConnectable iic = localNet.getConnector(point);
-		if(iic.isProxy()&&!WireUtils.hasAnyConnections(globalNet, iic))
-			globalNet.removeConnector(iic);
+		for(SectionPos section : sections)
+			Minecraft.getInstance().levelRenderer.setSectionDirty(section.x(), section.y(), section.z());
 	}
 
 	public enum Operation
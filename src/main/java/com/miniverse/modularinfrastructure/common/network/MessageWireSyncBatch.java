@@ -0,0 +1,48 @@
+package com.miniverse.modularinfrastructure.common.network;
+
+import com.miniverse.modularinfrastructure.api.wires.GlobalWireNetwork;
+import com.miniverse.modularinfrastructure.api.wires.WireLogger;
+import io.netty.buffer.ByteBuf;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import net.minecraft.client.Minecraft;
+import net.minecraft.core.SectionPos;
+import net.minecraft.network.codec.ByteBufCodecs;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.neoforged.api.distmarker.Dist;
+import net.neoforged.api.distmarker.OnlyIn;
+import net.neoforged.neoforge.network.handling.IPayloadContext;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * All wire changes of one tick for one player, applied in order
+ */
+public record MessageWireSyncBatch(List<MessageWireSync> changes) implements CustomPacketPayload
+{
+	public static final Type<MessageWireSyncBatch> ID = new Type<>(ResourceLocation.fromNamespaceAndPath(com.miniverse.modularinfrastructure.ModularInfrastructure.MOD_ID, "wire_sync_batch"));
+	public static final StreamCodec<ByteBuf, MessageWireSyncBatch> CODEC = MessageWireSync.CODEC
+			.apply(ByteBufCodecs.list())
+			.map(MessageWireSyncBatch::new, MessageWireSyncBatch::changes);
+
+	@OnlyIn(Dist.CLIENT)
+	public void process(IPayloadContext context)
+	{
+		context.enqueueWork(() -> {
+			WireLogger.logger.debug("Processing sync for {} wire changes", changes.size());
+			GlobalWireNetwork globalNet = GlobalWireNetwork.getNetwork(Minecraft.getInstance().player.level());
+			Set<SectionPos> sectionsToRerender = new ObjectOpenHashSet<>();
+			for(MessageWireSync change : changes)
+				MessageWireSync.apply(globalNet, change.connection().toConnection(), change.operation(), sectionsToRerender);
+			MessageWireSync.markSectionsDirty(sectionsToRerender);
+		});
+	}
+
+	@Override
+	public Type<? extends CustomPacketPayload> type()
+	{
+		return ID;
+	}
+}
@@ -0,0 +1,40 @@
+package com.miniverse.modularinfrastructure.common.network;
+
+import com.miniverse.modularinfrastructure.api.wires.WireTypeRegistry;
+import io.netty.buffer.ByteBuf;
+import net.minecraft.network.codec.ByteBufCodecs;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.neoforged.neoforge.network.handling.IPayloadContext;
+
+import java.util.List;
+
+/**
+ * Sent on login: the unique names of all wire types on the server, with each name at the ID of the type. Wire types
+ * are sent as these IDs in all later packets. Handled on the network thread, so the IDs are known before any later
+ * packet is decoded.
+ */
+public record MessageWireTypeIds(List<String> namesById) implements CustomPacketPayload
+{
+	public static final Type<MessageWireTypeIds> ID = new Type<>(ResourceLocation.fromNamespaceAndPath(com.miniverse.modularinfrastructure.ModularInfrastructure.MOD_ID, "wire_type_ids"));
+	public static final StreamCodec<ByteBuf, MessageWireTypeIds> CODEC = ByteBufCodecs.STRING_UTF8
+			.apply(ByteBufCodecs.list())
+			.map(MessageWireTypeIds::new, MessageWireTypeIds::namesById);
+
+	public MessageWireTypeIds()
+	{
+		this(WireTypeRegistry.getNamesById());
+	}
+
+	public void process(IPayloadContext context)
+	{
+		WireTypeRegistry.setSyncedNames(namesById);
+	}
+
+	@Override
+	public Type<? extends CustomPacketPayload> type()
+	{
+		return ID;
+	}
+}
@@ -9,11 +9,12 @@
 
 package com.miniverse.modularinfrastructure.common.network;
 
-import com.miniverse.modularinfrastructure.api.utils.codec.IEStreamCodecs;
 import com.miniverse.modularinfrastructure.api.wires.Connection;
 import com.miniverse.modularinfrastructure.api.wires.ConnectionPoint;
 import com.miniverse.modularinfrastructure.api.wires.WireType;
+import com.miniverse.modularinfrastructure.api.wires.WireTypeRegistry;
 import io.netty.buffer.ByteBuf;
+import net.minecraft.network.VarInt;
 import net.minecraft.network.codec.StreamCodec;
 import net.minecraft.world.phys.Vec3;
 
@@ -21,12 +22,20 @@ public record SyncedConnection(
 		ConnectionPoint start, ConnectionPoint end, WireType type, Vec3 offsetStart, Vec3 offsetEnd
 )
 {
+	private static final int OFFSET_SCALE = 256;
+	/**
+	 * Wire end offsets quantized to 1/{@value #OFFSET_SCALE} of a block. Every packet that adds a wire uses this, so
+	 * the client computes the same catenary for a wire no matter which packet added it.
+	 */
+	public static final StreamCodec<ByteBuf, Vec3> OFFSET_CODEC = StreamCodec.of(
+			SyncedConnection::writeOffset, SyncedConnection::readOffset
+	);
 	public static final StreamCodec<ByteBuf, SyncedConnection> CODEC = StreamCodec.composite(
 			ConnectionPoint.CODECS.streamCodec(), SyncedConnection::start,
 			ConnectionPoint.CODECS.streamCodec(), SyncedConnection::end,
-			WireType.CODECS.streamCodec(), SyncedConnection::type,
-			IEStreamCodecs.VEC3_STREAM_CODEC, SyncedConnection::offsetStart,
-			IEStreamCodecs.VEC3_STREAM_CODEC, SyncedConnection::offsetEnd,
+			WireTypeRegistry.STREAM_CODEC, SyncedConnection::type,
+			OFFSET_CODEC, SyncedConnection::offsetStart,
+			OFFSET_CODEC, SyncedConnection::offsetEnd,
 			SyncedConnection::new
 	);
 
@@ -43,4 +52,29 @@ public record SyncedConnection(
 	{
 		return new Connection(type, start, end, offsetStart, offsetEnd);
 	}
+
+	private static void writeOffset(ByteBuf buf, Vec3 offset)
+	{
+		VarInt.write(buf, zigzag((int)Math.round(offset.x*OFFSET_SCALE)));
+		VarInt.write(buf, zigzag((int)Math.round(offset.y*OFFSET_SCALE)));
+		VarInt.write(buf, zigzag((int)Math.round(offset.z*OFFSET_SCALE)));
+	}
+
+	private static Vec3 readOffset(ByteBuf buf)
+	{
+		double x = unzigzag(VarInt.read(buf))/(double)OFFSET_SCALE;
+		double y = unzigzag(VarInt.read(buf))/(double)OFFSET_SCALE;
+		double z = unzigzag(VarInt.read(buf))/(double)OFFSET_SCALE;
+		return new Vec3(x, y, z);
+	}
+
+	static int zigzag(int value)
+	{
+		return (value<<1)^(value>>31);
+	}
+
+	static int unzigzag(int encoded)
+	{
+		return (encoded>>>1)^-(encoded&1);
+	}
 }
\ No newline at end of file
@@ -12,6 +12,7 @@ package com.miniverse.modularinfrastructure.common.wires;
 import com.miniverse.modularinfrastructure.api.wires.Connection;
 import com.miniverse.modularinfrastructure.api.wires.WireApi;
 import com.miniverse.modularinfrastructure.api.wires.WireType;
+import com.miniverse.modularinfrastructure.api.wires.WireTypeRegistry;
 import com.miniverse.modularinfrastructure.api.wires.localhandlers.EnergyTransferHandler;
 import com.miniverse.modularinfrastructure.api.wires.localhandlers.EnergyTransferHandler.IEnergyWire;
 import com.miniverse.modularinfrastructure.api.wires.localhandlers.LocalNetworkHandler;
@@ -26,15 +27,11 @@ import net.minecraft.world.entity.Entity;
 import net.minecraft.world.item.ItemStack;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
 
 public class ModWireTypes
 {
-	// Wire type registry for NBT serialization
-	private static final Map<String, WireType> WIRE_TYPE_REGISTRY = new HashMap<>();
-	
 	// Power wires - using values from WireConfig
 	public static final ShockingWire COPPER_LV = new ShockingWire(
 		"modularinfrastructure:copper_lv", 
@@ -124,12 +121,13 @@ public class ModWireTypes
 	private static void registerWireType(WireType type)
 	{
 		WireApi.registerWireType(type);
-		WIRE_TYPE_REGISTRY.put(type.getUniqueName(), type);
 	}
 	
+	@Nullable
 	public static WireType getWireType(String name)
 	{
-		return WIRE_TYPE_REGISTRY.get(name);
+		// All wire types are indexed by WireTypeRegistry when they are created
+		return WireTypeRegistry.byName(name);
 	}
 	
 	// Basic wire implementation
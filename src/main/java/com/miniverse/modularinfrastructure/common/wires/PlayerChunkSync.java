@@ -0,0 +1,104 @@
+package com.miniverse.modularinfrastructure.common.wires;
+
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongLinkedOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.world.level.ChunkPos;
+
+/**
+ * Wire sync state of one player in one dimension. Chunks are packed as in {@link ChunkPos#toLong()}. Watched chunks are
+ * not sent immediately, but queued and sent closest to the player first. Chunks that are unwatched before they were
+ * sent are simply dropped from the queue.
+ */
+final class PlayerChunkSync
+{
+	/**
+	 * Returned by {@link #pollClosest(ChunkPos)} and {@link #pollRemoval()} if there is nothing left
+	 */
+	static final long NONE = Long.MAX_VALUE;
+
+	// Chunks whose wires have been sent to the player
+	final LongSet sent = new LongOpenHashSet();
+	// Watched chunks that have not been sent yet
+	private final LongSet pending = new LongOpenHashSet();
+	// Sent chunks that were unwatched, the client still has their wires
+	private final LongLinkedOpenHashSet pendingRemovals = new LongLinkedOpenHashSet();
+	// Pending chunks by distance to orderCenter, from nextInOrder on. May contain chunks that are no longer pending
+	private long[] order = LongArrays.EMPTY_ARRAY;
+	private int nextInOrder = 0;
+	private long orderCenter = NONE;
+
+	void watch(long chunk)
+	{
+		// Re-watched before the removal was sent: the client still has the wires
+		if(pendingRemovals.remove(chunk))
+			sent.add(chunk);
+		else if(!sent.contains(chunk)&&pending.add(chunk))
+			orderCenter = NONE;
+	}
+
+	void unwatch(long chunk)
+	{
+		if(!pending.remove(chunk)&&sent.remove(chunk))
+			pendingRemovals.add(chunk);
+	}
+
+	boolean isPending(long chunk)
+	{
+		return pending.contains(chunk);
+	}
+
+	boolean hasQueuedWork()
+	{
+		return !pending.isEmpty()||!pendingRemovals.isEmpty();
+	}
+
+	boolean isEmpty()
+	{
+		return sent.isEmpty()&&!hasQueuedWork();
+	}
+
+	long pollRemoval()
+	{
+		return pendingRemovals.isEmpty()?NONE: pendingRemovals.removeFirstLong();
+	}
+
+	/**
+	 * @return the pending chunk closest to the given chunk, which is no longer pending afterwards
+	 */
+	long pollClosest(ChunkPos center)
+	{
+		if(pending.isEmpty())
+			return NONE;
+		// Only sort again if new chunks were queued or the player moved to another chunk, e.g. by teleporting
+		if(orderCenter!=center.toLong())
+			sortPending(center);
+		while(nextInOrder < order.length)
+		{
+			long chunk = order[nextInOrder++];
+			if(pending.remove(chunk))
+				return chunk;
+		}
+		return NONE;
+	}
+
+	private void sortPending(ChunkPos center)
+	{
+		order = new long[pending.size()];
+		int i = 0;
+		for(LongIterator it = pending.iterator(); it.hasNext(); )
+			order[i++] = it.nextLong();
+		LongArrays.quickSort(order, (a, b) -> Integer.compare(distanceSq(a, center), distanceSq(b, center)));
+		nextInOrder = 0;
+		orderCenter = center.toLong();
+	}
+
+	private static int distanceSq(long chunk, ChunkPos center)
+	{
+		int dx = ChunkPos.getX(chunk)-center.x;
+		int dz = ChunkPos.getZ(chunk)-center.z;
+		return dx*dx+dz*dz;
+	}
+}
@@ -19,16 +19,23 @@ import net.minecraft.core.HolderLookup.Provider;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.level.Level;
+import net.minecraft.world.level.dimension.DimensionType;
 import net.minecraft.world.level.saveddata.SavedData.Factory;
 import net.minecraft.world.level.storage.DimensionDataStorage;
+import net.minecraft.world.level.storage.LevelResource;
+import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.fml.common.EventBusSubscriber;
 import net.neoforged.neoforge.attachment.IAttachmentHolder;
 import net.neoforged.neoforge.attachment.IAttachmentSerializer;
+import net.neoforged.neoforge.event.level.LevelEvent;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.File;
+import java.nio.file.Path;
 import java.util.function.Function;
 
+@EventBusSubscriber(modid = Lib.MODID)
 public class WireNetworkCreator
 {
 	public static final IAttachmentSerializer<CompoundTag, GlobalWireNetwork> SERIALIZER = new Serializer();
@@ -41,11 +48,32 @@ public class WireNetworkCreator
 			throw new RuntimeException("Wire networks should only ever be attached to levels, got "+holder);
 	};
 	private static final String SAVEDATA_KEY = Lib.MODID+"_wire_network";
+	private static final String JOURNAL_FILE = Lib.MODID+"_wires.journal";
 
 	public static GlobalWireNetwork getOrCreateNetwork(Level level)
 	{
 		replaceOldWireNetwork(level);
-		return level.getData(ModDataAttachments.WIRE_NETWORK.get());
+		GlobalWireNetwork net = level.getData(ModDataAttachments.WIRE_NETWORK.get());
+		if(level instanceof ServerLevel serverLevel)
+			net.openJournal(getJournalFile(serverLevel));
+		return net;
+	}
+
+	@SubscribeEvent
+	public static void onLevelUnload(LevelEvent.Unload ev)
+	{
+		// The final save happens before unloading, so the journal is empty at this point unless saving failed
+		if(ev.getLevel() instanceof ServerLevel level&&level.hasData(ModDataAttachments.WIRE_NETWORK.get()))
+			level.getData(ModDataAttachments.WIRE_NETWORK.get()).closeJournal();
+	}
+
+	/**
+	 * The journal is stored next to the other data of the dimension, e.g. "DIM-1/data" for the nether
+	 */
+	private static Path getJournalFile(ServerLevel level)
+	{
+		Path worldRoot = level.getServer().getWorldPath(LevelResource.ROOT);
+		return DimensionType.getStorageFolder(level.dimension(), worldRoot).resolve("data").resolve(JOURNAL_FILE);
 	}
 
 	/**
@@ -97,6 +125,7 @@ public class WireNetworkCreator
 		public GlobalWireNetwork read(@Nonnull IAttachmentHolder holder, @Nonnull CompoundTag tag, Provider provider)
 		{
 			GlobalWireNetwork baseNet = CREATOR.apply(holder);
+			// Accepts both the binary format and the old NBT layout, write always uses the binary format
 			baseNet.readFromNBT(tag);
 			return baseNet;
 		}
@@ -10,104 +10,241 @@
 package com.miniverse.modularinfrastructure.common.wires;
 
 import com.miniverse.modularinfrastructure.ModularInfrastructure;
-import com.miniverse.modularinfrastructure.api.ApiUtils;
 import com.miniverse.modularinfrastructure.api.wires.*;
+import com.miniverse.modularinfrastructure.common.config.IEServerConfig;
+import com.miniverse.modularinfrastructure.common.network.MessageChunkWireSync;
 import com.miniverse.modularinfrastructure.common.network.MessageWireSync;
 import com.miniverse.modularinfrastructure.common.network.MessageWireSync.Operation;
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.SetMultimap;
-import net.minecraft.server.level.ServerChunkCache;
+import com.miniverse.modularinfrastructure.common.network.MessageWireSyncBatch;
+import com.miniverse.modularinfrastructure.common.network.MessageWireTypeIds;
+import com.miniverse.modularinfrastructure.common.network.SyncedConnection;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArraySet;
+import it.unimi.dsi.fastutil.objects.ReferenceLinkedOpenHashSet;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.Level;
 import net.neoforged.bus.api.SubscribeEvent;
 import net.neoforged.fml.common.EventBusSubscriber;
+import net.neoforged.neoforge.event.entity.player.PlayerEvent;
 import net.neoforged.neoforge.event.level.ChunkWatchEvent;
+import net.neoforged.neoforge.event.server.ServerStoppedEvent;
+import net.neoforged.neoforge.event.tick.ServerTickEvent;
 import net.neoforged.neoforge.network.PacketDistributor;
 
+import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.UUID;
 
 @EventBusSubscriber(modid = ModularInfrastructure.MOD_ID)
 public class WireSyncManager implements IWireSyncManager
 {
-	private static final SetMultimap<UUID, ChunkPos> wireWatchedChunksByPlayer = HashMultimap.create();
+	// Sent and queued chunks of each player, by dimension
+	private static final Map<ResourceKey<Level>, Map<UUID, PlayerChunkSync>> chunkSyncByLevel = new HashMap<>();
+	// Managers with pending changes, flushed at the end of the server tick
+	private static final Set<WireSyncManager> managersWithChanges = new ReferenceLinkedOpenHashSet<>();
 
-	private static void sendMessagesForChunk(Level w, ChunkPos pos, ServerPlayer player, boolean add)
+	/**
+	 * @return whether a packet was sent, i.e. whether the chunk contains any wires the player needs
+	 */
+	private static boolean sendMessagesForChunk(Level w, ChunkPos pos, ServerPlayer player, LongSet watched, boolean add)
 	{
 		GlobalWireNetwork net = GlobalWireNetwork.getNetwork(w);
 		Collection<ConnectionPoint> connsInChunk = net.getAllConnectorsIn(pos);
 		final Operation operation = add?Operation.ADD: Operation.REMOVE;
+		List<SyncedConnection> toSend = new ArrayList<>();
 		for(ConnectionPoint cp : connsInChunk)
 			for(Connection conn : net.getLocalNet(cp).getConnections(cp))
-				if(shouldSendConnection(conn, pos, player, add, cp))
+				if(shouldSendConnection(conn, pos, watched, cp))
 				{
 					WireLogger.logger.info("Sending connection {} ({}) for chunk change at {}", conn, add, pos);
-					PacketDistributor.sendToPlayer(player, new MessageWireSync(conn, operation));
+					toSend.add(new SyncedConnection(conn));
 				}
+		// All wires of the chunk are sent in one packet
+		if(toSend.isEmpty())
+			return false;
+		PacketDistributor.sendToPlayer(player, new MessageChunkWireSync(pos, operation, toSend));
+		return true;
 	}
 
-	private static boolean shouldSendConnection(Connection conn, ChunkPos pos, ServerPlayer player, boolean add,
-												ConnectionPoint currEnd)
+	private static boolean shouldSendConnection(Connection conn, ChunkPos pos, LongSet watched, ConnectionPoint currEnd)
 	{
 		if(conn.isInternal())
 			return false;
 		ConnectionPoint other = conn.getOtherEnd(currEnd);
-		ChunkPos otherChunk = new ChunkPos(other.position());
-		if(otherChunk.equals(pos))
+		int otherX = other.getX() >> 4;
+		int otherZ = other.getZ() >> 4;
+		if(otherX==pos.x&&otherZ==pos.z)
 			return conn.isPositiveEnd(currEnd);
 		else
-			return wireWatchedChunksByPlayer.containsEntry(player.getUUID(), otherChunk);
+			return watched.contains(ChunkPos.asLong(otherX, otherZ));
+	}
+
+	private static boolean isQueued(@Nullable PlayerChunkSync sync, Connection connection)
+	{
+		return sync!=null&&(
+				sync.isPending(new ChunkPos(connection.getEndA().position()).toLong())||
+						sync.isPending(new ChunkPos(connection.getEndB().position()).toLong())
+		);
 	}
 
-	private static void addPlayersTrackingPoint(Set<ServerPlayer> receivers, int x, int z, ServerLevel world)
+	private static void addPlayersTrackingPoint(
+			Set<ServerPlayer> receivers, ConnectionPoint point, ServerLevel world, Long2ObjectMap<List<ServerPlayer>> cache
+	)
 	{
-		ServerChunkCache chunkProvider = world.getChunkSource();
-		for(ServerPlayer e : chunkProvider.chunkMap.getPlayers(new ChunkPos(x >> 4, z >> 4), false))
+		ChunkPos chunk = new ChunkPos(point.position());
+		List<ServerPlayer> players = cache.computeIfAbsent(
+				chunk.toLong(), $ -> world.getChunkSource().chunkMap.getPlayers(chunk, false)
+		);
+		for(ServerPlayer e : players)
 		{
-			WireLogger.logger.debug("Watching player for {}, {}: {}", x, z, e);
+			WireLogger.logger.debug("Watching player for {}: {}", point, e);
 			receivers.add(e);
 		}
 	}
 
-	private static void sendToPlayersForConnection(Operation operation, Level level, Connection connection)
+	/**
+	 * Combines two changes to the same connection
+	 *
+	 * @return the change that has the same effect on the client, or null if the changes cancel out
+	 */
+	@Nullable
+	private static Operation combine(@Nullable Operation previous, Operation next)
 	{
-		if(connection.isInternal()||!(level instanceof ServerLevel serverLevel))
-			return;
-		ApiUtils.addFutureServerTask(serverLevel, () -> {
-			Set<ServerPlayer> targets = new HashSet<>();
-			addPlayersTrackingPoint(targets, connection.getEndA().getX(), connection.getEndA().getZ(), serverLevel);
-			addPlayersTrackingPoint(targets, connection.getEndB().getX(), connection.getEndB().getZ(), serverLevel);
-			MessageWireSync msg = new MessageWireSync(connection, operation);
-			for(ServerPlayer p : targets)
-				PacketDistributor.sendToPlayer(p, msg);
-		}, true);
+		if(previous==null)
+			return next;
+		return switch(next)
+		{
+			// The client has never seen a wire that was added since the last flush
+			case REMOVE -> previous==Operation.ADD?null: Operation.REMOVE;
+			// Removed and added again: the client still has the old wire, UPDATE replaces it
+			case ADD -> previous==Operation.REMOVE?Operation.UPDATE: Operation.ADD;
+			case UPDATE -> previous==Operation.ADD?Operation.ADD: Operation.UPDATE;
+		};
+	}
+
+	@SubscribeEvent
+	public static void onServerTick(ServerTickEvent.Post ev)
+	{
+		// Changes go out first, the chunk data sent afterwards already includes them
+		for(WireSyncManager manager : managersWithChanges)
+			manager.flush();
+		managersWithChanges.clear();
+		sendQueuedChunks(ev.getServer());
+	}
+
+	@SubscribeEvent
+	public static void onServerStopped(ServerStoppedEvent ev)
+	{
+		managersWithChanges.clear();
+		chunkSyncByLevel.clear();
+	}
+
+	/**
+	 * Sends the queued chunks of every player, closest first. Only chunks that contain wires count towards the budget
+	 */
+	private static void sendQueuedChunks(MinecraftServer server)
+	{
+		final int budget = IEServerConfig.getOrDefault(IEServerConfig.WIRES.chunkSyncPacketsPerTick);
+		for(Entry<ResourceKey<Level>, Map<UUID, PlayerChunkSync>> levelEntry : chunkSyncByLevel.entrySet())
+		{
+			ServerLevel level = server.getLevel(levelEntry.getKey());
+			if(level==null)
+				continue;
+			for(Iterator<Entry<UUID, PlayerChunkSync>> it = levelEntry.getValue().entrySet().iterator(); it.hasNext(); )
+			{
+				Entry<UUID, PlayerChunkSync> playerEntry = it.next();
+				PlayerChunkSync sync = playerEntry.getValue();
+				if(!sync.hasQueuedWork())
+					continue;
+				ServerPlayer player = server.getPlayerList().getPlayer(playerEntry.getKey());
+				if(player==null||player.level()!=level)
+					continue;
+				int sent = 0;
+				long chunk;
+				// The budget is checked before polling, a polled chunk is always sent. Removals first, a chunk may be
+				// queued again after its removal
+				while(sent < budget&&(chunk = sync.pollRemoval())!=PlayerChunkSync.NONE)
+					if(sendMessagesForChunk(level, new ChunkPos(chunk), player, sync.sent, false))
+						++sent;
+				ChunkPos center = player.chunkPosition();
+				while(sent < budget&&(chunk = sync.pollClosest(center))!=PlayerChunkSync.NONE)
+				{
+					sync.sent.add(chunk);
+					if(sendMessagesForChunk(level, new ChunkPos(chunk), player, sync.sent, true))
+						++sent;
+				}
+				if(sync.isEmpty())
+					it.remove();
+			}
+		}
+	}
+
+	@SubscribeEvent
+	public static void onPlayerLogin(PlayerEvent.PlayerLoggedInEvent ev)
+	{
+		// Sent before any chunk is watched, all wire packets refer to wire types by these IDs
+		if(ev.getEntity() instanceof ServerPlayer player)
+			PacketDistributor.sendToPlayer(player, new MessageWireTypeIds());
 	}
 
 	@SubscribeEvent
 	public static void onChunkWatch(ChunkWatchEvent.Watch ev)
 	{
-		ApiUtils.addFutureServerTask(ev.getLevel(),
-				() -> {
-					if(wireWatchedChunksByPlayer.put(ev.getPlayer().getUUID(), ev.getPos()))
-						sendMessagesForChunk(ev.getLevel(), ev.getPos(), ev.getPlayer(), true);
-				}, true);
+		// Only queued here, the wires are sent at the end of the tick
+		chunkSyncByLevel
+				.computeIfAbsent(ev.getLevel().dimension(), $ -> new Object2ObjectOpenHashMap<>())
+				.computeIfAbsent(ev.getPlayer().getUUID(), $ -> new PlayerChunkSync())
+				.watch(ev.getPos().toLong());
 	}
 
 	@SubscribeEvent
 	public static void onChunkUnWatch(ChunkWatchEvent.UnWatch ev)
 	{
-		ApiUtils.addFutureServerTask(ev.getLevel(),
-				() -> {
-					if(wireWatchedChunksByPlayer.remove(ev.getPlayer().getUUID(), ev.getPos()))
-						sendMessagesForChunk(ev.getLevel(), ev.getPos(), ev.getPlayer(), false);
-				}, true);
+		Map<UUID, PlayerChunkSync> syncByPlayer = chunkSyncByLevel.get(ev.getLevel().dimension());
+		PlayerChunkSync sync = syncByPlayer!=null?syncByPlayer.get(ev.getPlayer().getUUID()): null;
+		if(sync!=null)
+		{
+			sync.unwatch(ev.getPos().toLong());
+			if(sync.isEmpty())
+				syncByPlayer.remove(ev.getPlayer().getUUID());
+		}
+	}
+
+	@SubscribeEvent
+	public static void onPlayerLogout(PlayerEvent.PlayerLoggedOutEvent ev)
+	{
+		for(Map<UUID, PlayerChunkSync> syncByPlayer : chunkSyncByLevel.values())
+			syncByPlayer.remove(ev.getEntity().getUUID());
+	}
+
+	@SubscribeEvent
+	public static void onPlayerChangedDimension(PlayerEvent.PlayerChangedDimensionEvent ev)
+	{
+		// The client drops all wires of the old dimension, so nothing needs to be sent
+		Map<UUID, PlayerChunkSync> syncByPlayer = chunkSyncByLevel.get(ev.getFrom());
+		if(syncByPlayer!=null)
+			syncByPlayer.remove(ev.getEntity().getUUID());
 	}
 
 	private final Level world;
+	// Changes since the last flush, coalesced per connection. Connection equality ignores the offsets, the key is always
+	// the latest instance so the current offsets are sent
+	private final Map<Connection, Operation> outbox = new LinkedHashMap<>();
 
 	public WireSyncManager(Level world)
 	{
@@ -116,17 +253,61 @@ public class WireSyncManager implements IWireSyncManager
 
 	public void onConnectionAdded(Connection c)
 	{
-		sendToPlayersForConnection(Operation.ADD, world, c);
+		enqueue(Operation.ADD, c);
 	}
 
 	public void onConnectionRemoved(Connection c)
 	{
-		sendToPlayersForConnection(Operation.REMOVE, world, c);
+		enqueue(Operation.REMOVE, c);
 	}
 
 	@Override
 	public void onConnectionEndpointsChanged(Connection c)
 	{
-		sendToPlayersForConnection(Operation.UPDATE, world, c);
+		enqueue(Operation.UPDATE, c);
+	}
+
+	private void enqueue(Operation operation, Connection connection)
+	{
+		if(connection.isInternal()||!(world instanceof ServerLevel))
+			return;
+		Operation combined = combine(outbox.remove(connection), operation);
+		if(combined!=null)
+			outbox.put(connection, combined);
+		managersWithChanges.add(this);
+	}
+
+	/**
+	 * Sends all pending changes, one packet per player
+	 */
+	private void flush()
+	{
+		if(outbox.isEmpty()||!(world instanceof ServerLevel serverLevel))
+			return;
+		Long2ObjectMap<List<ServerPlayer>> playersByChunk = new Long2ObjectOpenHashMap<>();
+		Map<ServerPlayer, List<MessageWireSync>> messagesByPlayer = new LinkedHashMap<>();
+		Set<ServerPlayer> targets = new ObjectArraySet<>();
+		Map<UUID, PlayerChunkSync> syncByPlayer = chunkSyncByLevel.get(serverLevel.dimension());
+		for(Entry<Connection, Operation> change : outbox.entrySet())
+		{
+			Connection connection = change.getKey();
+			targets.clear();
+			addPlayersTrackingPoint(targets, connection.getEndA(), serverLevel, playersByChunk);
+			addPlayersTrackingPoint(targets, connection.getEndB(), serverLevel, playersByChunk);
+			// Queued chunks will send the current state of the wire anyway
+			if(syncByPlayer!=null)
+				targets.removeIf(p -> isQueued(syncByPlayer.get(p.getUUID()), connection));
+			if(targets.isEmpty())
+				continue;
+			MessageWireSync msg = new MessageWireSync(connection, change.getValue());
+			for(ServerPlayer p : targets)
+				messagesByPlayer.computeIfAbsent(p, $ -> new ArrayList<>()).add(msg);
+		}
+		outbox.clear();
+		for(Entry<ServerPlayer, List<MessageWireSync>> messages : messagesByPlayer.entrySet())
+			if(messages.getValue().size()==1)
+				PacketDistributor.sendToPlayer(messages.getKey(), messages.getValue().get(0));
+			else
+				PacketDistributor.sendToPlayer(messages.getKey(), new MessageWireSyncBatch(messages.getValue()));
 	}
 }
\ No newline at end of file
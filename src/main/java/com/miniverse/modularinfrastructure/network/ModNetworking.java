@@ -4,6 +4,7 @@ import com.miniverse.modularinfrastructure.ModularInfrastructure;
 import net.neoforged.bus.api.SubscribeEvent;
 import net.neoforged.fml.common.EventBusSubscriber;
 import net.neoforged.neoforge.network.event.RegisterPayloadHandlersEvent;
+import net.neoforged.neoforge.network.handling.HandlerThread;
 import net.neoforged.neoforge.network.registration.PayloadRegistrar;
 
 /**
@@ -14,7 +15,14 @@ public class ModNetworking {
     
     @SubscribeEvent
     public static void register(RegisterPayloadHandlersEvent event) {
-        PayloadRegistrar registrar = event.registrar("1");
+        PayloadRegistrar registrar = event.registrar("2");
+        
+        // Wire type IDs are needed to decode the wire packets that follow, so they are applied on the network thread
+        registrar.executesOn(HandlerThread.NETWORK).playToClient(
+            com.miniverse.modularinfrastructure.common.network.MessageWireTypeIds.ID,
+            com.miniverse.modularinfrastructure.common.network.MessageWireTypeIds.CODEC,
+            com.miniverse.modularinfrastructure.common.network.MessageWireTypeIds::process
+        );
         
         // Register wire sync packet
         registrar.playToClient(
@@ -22,5 +30,19 @@ public class ModNetworking {
             com.miniverse.modularinfrastructure.common.network.MessageWireSync.CODEC,
             com.miniverse.modularinfrastructure.common.network.MessageWireSync::process
         );
+        
+        // Register bulk wire sync packet, used when a player starts or stops watching a chunk
+        registrar.playToClient(
+            com.miniverse.modularinfrastructure.common.network.MessageChunkWireSync.ID,
+            com.miniverse.modularinfrastructure.common.network.MessageChunkWireSync.CODEC,
+            com.miniverse.modularinfrastructure.common.network.MessageChunkWireSync::process
+        );
+        
+        // Register batched wire sync packet, carries all wire changes of one tick for one player
+        registrar.playToClient(
+            com.miniverse.modularinfrastructure.common.network.MessageWireSyncBatch.ID,
+            com.miniverse.modularinfrastructure.common.network.MessageWireSyncBatch.CODEC,
+            com.miniverse.modularinfrastructure.common.network.MessageWireSyncBatch::process
+        );
     }
 }
\ No newline at end of file
@@ -0,0 +1,133 @@
+package com.miniverse.modularinfrastructure.api.wires;
+
+import com.miniverse.modularinfrastructure.api.wires.proxy.DefaultProxyProvider;
+import net.minecraft.core.BlockPos;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalNetSplitTest
+{
+	private static final TestWireType WIRE = new TestWireType("split_test", 0, Integer.MAX_VALUE);
+
+	private GlobalWireNetwork global;
+	private int removedCount;
+
+	@BeforeEach
+	void setUp()
+	{
+		removedCount = 0;
+		global = new GlobalWireNetwork(false, new DefaultProxyProvider(null), new IWireSyncManager()
+		{
+			@Override
+			public void onConnectionAdded(Connection c)
+			{
+			}
+
+			@Override
+			public void onConnectionRemoved(Connection c)
+			{
+				++removedCount;
+			}
+
+			@Override
+			public void onConnectionEndpointsChanged(Connection c)
+			{
+			}
+		});
+	}
+
+	private TestConnector addConnector(int x)
+	{
+		TestConnector connector = new TestConnector(new BlockPos(x, 64, 0));
+		global.onConnectorLoad(connector, false);
+		return connector;
+	}
+
+	private void assertConnected(TestConnector a, TestConnector b)
+	{
+		assertSame(global.getLocalNet(a.getPoint()), global.getLocalNet(b.getPoint()));
+	}
+
+	private void assertSeparate(TestConnector a, TestConnector b)
+	{
+		assertNotSame(global.getLocalNet(a.getPoint()), global.getLocalNet(b.getPoint()));
+	}
+
+	@Test
+	void removingAllWiresAtHubSeparatesEveryEnd()
+	{
+		TestConnector hub = addConnector(0);
+		TestConnector a = addConnector(4);
+		TestConnector b = addConnector(-4);
+		Connection toA = WIRE.connect(global, hub.getPoint(), a.getPoint());
+		Connection toB = WIRE.connect(global, hub.getPoint(), b.getPoint());
+		assertConnected(a, b);
+
+		global.removeConnections(List.of(toA, toB));
+
+		assertSeparate(hub, a);
+		assertSeparate(hub, b);
+		assertSeparate(a, b);
+	}
+
+	@Test
+	void removingAllWiresAtConnectorSeparatesEveryEnd()
+	{
+		TestConnector hub = addConnector(0);
+		TestConnector a = addConnector(4);
+		TestConnector b = addConnector(-4);
+		TestConnector c = addConnector(8);
+		WIRE.connect(global, hub.getPoint(), a.getPoint());
+		WIRE.connect(global, hub.getPoint(), b.getPoint());
+		WIRE.connect(global, a.getPoint(), c.getPoint());
+
+		global.removeAllConnectionsAt(hub, $ -> {
+		});
+
+		assertSeparate(hub, a);
+		assertSeparate(hub, b);
+		assertSeparate(a, b);
+		assertConnected(a, c);
+	}
+
+	@Test
+	void batchKeepsEndsThatAreStillConnected()
+	{
+		// Square with one diagonal, removing two of its sides leaves all corners connected
+		TestConnector a = addConnector(0);
+		TestConnector b = addConnector(4);
+		TestConnector c = addConnector(8);
+		TestConnector d = addConnector(12);
+		Connection ab = WIRE.connect(global, a.getPoint(), b.getPoint());
+		WIRE.connect(global, b.getPoint(), c.getPoint());
+		WIRE.connect(global, c.getPoint(), d.getPoint());
+		Connection da = WIRE.connect(global, d.getPoint(), a.getPoint());
+		WIRE.connect(global, a.getPoint(), c.getPoint());
+
+		global.removeConnections(List.of(ab, da));
+
+		assertConnected(a, b);
+		assertConnected(a, c);
+		assertConnected(a, d);
+	}
+
+	@Test
+	void duplicateConnectionsAreRemovedOnce()
+	{
+		TestConnector a = addConnector(0);
+		TestConnector b = addConnector(4);
+		TestConnector c = addConnector(8);
+		Connection ab = WIRE.connect(global, a.getPoint(), b.getPoint());
+		WIRE.connect(global, b.getPoint(), c.getPoint());
+
+		global.removeConnections(List.of(ab, ab));
+
+		assertEquals(1, removedCount);
+		assertSeparate(a, b);
+		assertConnected(b, c);
+	}
+}
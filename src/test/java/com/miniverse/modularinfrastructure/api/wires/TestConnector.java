@@ -0,0 +1,101 @@
+package com.miniverse.modularinfrastructure.api.wires;
+
+import com.miniverse.modularinfrastructure.api.TargetingInfo;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Vec3i;
+import net.minecraft.world.phys.Vec3;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Connector without a block entity that accepts any wire, with its points numbered from 0
+ */
+public class TestConnector implements IImmersiveConnectable
+{
+	private final BlockPos pos;
+	private final List<ConnectionPoint> points = new ArrayList<>();
+
+	public TestConnector(BlockPos pos, int numPoints)
+	{
+		this.pos = pos;
+		for(int i = 0; i < numPoints; ++i)
+			points.add(new ConnectionPoint(pos, i));
+	}
+
+	public TestConnector(BlockPos pos)
+	{
+		this(pos, 1);
+	}
+
+	public ConnectionPoint getPoint(int index)
+	{
+		return points.get(index);
+	}
+
+	public ConnectionPoint getPoint()
+	{
+		return getPoint(0);
+	}
+
+	@Override
+	public boolean canConnect()
+	{
+		return true;
+	}
+
+	@Override
+	public BlockPos getConnectionMaster(@Nullable WireType cableType, TargetingInfo target)
+	{
+		return pos;
+	}
+
+	@Override
+	public boolean canConnectCable(WireType cableType, ConnectionPoint target, Vec3i offset)
+	{
+		return true;
+	}
+
+	@Override
+	public void connectCable(WireType cableType, ConnectionPoint target, IImmersiveConnectable other, ConnectionPoint otherTarget)
+	{
+	}
+
+	@Nullable
+	@Override
+	public ConnectionPoint getTargetedPoint(TargetingInfo info, Vec3i offset)
+	{
+		return getPoint();
+	}
+
+	@Override
+	public void removeCable(@Nullable Connection connection, ConnectionPoint attachedPoint)
+	{
+	}
+
+	@Override
+	public Vec3 getConnectionOffset(ConnectionPoint here, ConnectionPoint other, WireType type)
+	{
+		return new Vec3(.5, .5, .5);
+	}
+
+	@Override
+	public Collection<ConnectionPoint> getConnectionPoints()
+	{
+		return points;
+	}
+
+	@Override
+	public BlockPos getPosition()
+	{
+		return pos;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "TestConnector at "+pos;
+	}
+}
@@ -0,0 +1,94 @@
+package com.miniverse.modularinfrastructure.api.wires;
+
+import com.miniverse.modularinfrastructure.api.wires.localhandlers.EnergyTransferHandler.IEnergyWire;
+import net.minecraft.world.item.ItemStack;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Energy wire with a fixed loss per connection, independent of the length
+ */
+public class TestWireType extends WireType implements IEnergyWire
+{
+	private final String name;
+	private final double loss;
+	private final int transferRate;
+
+	public TestWireType(String name, double loss, int transferRate)
+	{
+		this.name = name;
+		this.loss = loss;
+		this.transferRate = transferRate;
+	}
+
+	/**
+	 * Adds a wire of this type between the given points, which must belong to loaded connectors
+	 */
+	public Connection connect(GlobalWireNetwork net, ConnectionPoint a, ConnectionPoint b)
+	{
+		Connection conn = new Connection(this, a, b, net);
+		net.addConnection(conn);
+		return conn;
+	}
+
+	@Override
+	public String getUniqueName()
+	{
+		return name;
+	}
+
+	@Override
+	public int getColour(Connection connection)
+	{
+		return 0xffffff;
+	}
+
+	@Override
+	public double getSlack()
+	{
+		return 1.005;
+	}
+
+	@Override
+	public int getMaxLength()
+	{
+		return 64;
+	}
+
+	@Override
+	public ItemStack getWireCoil(Connection con)
+	{
+		return ItemStack.EMPTY;
+	}
+
+	@Override
+	public double getRenderDiameter()
+	{
+		return .0625;
+	}
+
+	@Nonnull
+	@Override
+	public String getCategory()
+	{
+		return POWER_CATEGORY;
+	}
+
+	@Override
+	public int getTransferRate()
+	{
+		return transferRate;
+	}
+
+	@Override
+	public double getBasicLossRate(Connection c)
+	{
+		return loss;
+	}
+
+	@Override
+	public double getLossRate(Connection c, int transferred)
+	{
+		return loss;
+	}
+}
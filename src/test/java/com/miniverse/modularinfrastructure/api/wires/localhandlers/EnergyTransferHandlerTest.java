@@ -0,0 +1,528 @@
+package com.miniverse.modularinfrastructure.api.wires.localhandlers;
+
+import com.miniverse.modularinfrastructure.api.wires.*;
+import com.miniverse.modularinfrastructure.api.wires.localhandlers.EnergyTransferHandler.EnergyConnector;
+import com.miniverse.modularinfrastructure.api.wires.localhandlers.EnergyTransferHandler.LimitingEnergyConnector;
+import com.miniverse.modularinfrastructure.api.wires.localhandlers.EnergyTransferHandler.Path;
+import com.miniverse.modularinfrastructure.api.wires.localhandlers.EnergyTransferHandler.PlannedTransfer;
+import com.miniverse.modularinfrastructure.api.wires.localhandlers.EnergyTransferHandler.TransferAction;
+import com.miniverse.modularinfrastructure.api.wires.localhandlers.EnergyTransferHandler.TransferPlan;
+import com.miniverse.modularinfrastructure.api.wires.proxy.DefaultProxyProvider;
+import it.unimi.dsi.fastutil.objects.Object2DoubleMap;
+import it.unimi.dsi.fastutil.objects.Object2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceLocation;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the transfers of the handler with the original transfer that walks every path from a source to a sink
+ * separately, on a small net with branches, a shared power limit and more demand than supply
+ */
+class EnergyTransferHandlerTest
+{
+	private static final TestWireType CHEAP = new TestWireType("transfer_test_cheap", .01, Integer.MAX_VALUE);
+	private static final TestWireType LOSSY = new TestWireType("transfer_test_lossy", .05, Integer.MAX_VALUE);
+	// Used where a LOSSY wire would make two paths equally short
+	private static final TestWireType MEDIUM = new TestWireType("transfer_test_medium", .04, Integer.MAX_VALUE);
+
+	private final List<PlannedTransfer> calls = new ArrayList<>();
+	private final List<TestEnergyConnector> connectors = new ArrayList<>();
+	private GlobalWireNetwork global;
+	private TestEnergyConnector source1;
+	private TestEnergyConnector sink1;
+	private TestEnergyConnector sink2;
+	private TestEnergyConnector sink3;
+	private TestEnergyConnector sink4;
+	private Connection hubToLimiter;
+
+	@BeforeAll
+	static void registerHandler()
+	{
+		LocalNetworkHandler.register(EnergyTransferHandler.ID, EnergyTransferHandler::new);
+	}
+
+	@BeforeEach
+	void setUp()
+	{
+		global = new GlobalWireNetwork(false, new DefaultProxyProvider(null), new IWireSyncManager()
+		{
+			@Override
+			public void onConnectionAdded(Connection c)
+			{
+			}
+
+			@Override
+			public void onConnectionRemoved(Connection c)
+			{
+			}
+
+			@Override
+			public void onConnectionEndpointsChanged(Connection c)
+			{
+			}
+		});
+		source1 = add(new TestEnergyConnector(0, 0, 1000, 0));
+		TestEnergyConnector hub1 = add(new TestEnergyConnector(4, 0, 0, 0));
+		TestEnergyConnector limiter = add(new TestLimiter(8, 0, 100));
+		TestEnergyConnector behindLimiter = add(new TestEnergyConnector(12, 0, 0, 0));
+		sink1 = add(new TestEnergyConnector(16, 0, 0, 80));
+		sink2 = add(new TestEnergyConnector(12, 4, 0, 60));
+		TestEnergyConnector hub2 = add(new TestEnergyConnector(4, 8, 0, 0));
+		sink3 = add(new TestEnergyConnector(8, 8, 0, 500));
+		sink4 = add(new TestEnergyConnector(4, 12, 0, 700));
+		TestEnergyConnector source2 = add(new TestEnergyConnector(0, 8, 300, 0));
+		CHEAP.connect(global, source1.getPoint(), hub1.getPoint());
+		hubToLimiter = CHEAP.connect(global, hub1.getPoint(), limiter.getPoint());
+		CHEAP.connect(global, limiter.getPoint(), behindLimiter.getPoint());
+		CHEAP.connect(global, behindLimiter.getPoint(), sink1.getPoint());
+		CHEAP.connect(global, behindLimiter.getPoint(), sink2.getPoint());
+		LOSSY.connect(global, hub1.getPoint(), hub2.getPoint());
+		CHEAP.connect(global, hub2.getPoint(), sink3.getPoint());
+		LOSSY.connect(global, hub2.getPoint(), sink4.getPoint());
+		CHEAP.connect(global, source2.getPoint(), hub2.getPoint());
+		MEDIUM.connect(global, source1.getPoint(), source2.getPoint());
+		MEDIUM.connect(global, sink3.getPoint(), sink1.getPoint());
+	}
+
+	private TestEnergyConnector add(TestEnergyConnector connector)
+	{
+		global.onConnectorLoad(connector, false);
+		connectors.add(connector);
+		return connector;
+	}
+
+	private EnergyTransferHandler getHandler()
+	{
+		LocalWireNetwork net = global.getLocalNet(connectors.get(0).getPoint());
+		return net.getHandler(EnergyTransferHandler.ID, EnergyTransferHandler.class);
+	}
+
+	@Test
+	void transfersMatchPerPathTransfer()
+	{
+		assertTickMatchesPerPathTransfer(getHandler());
+	}
+
+	@Test
+	void reusedPlanMatchesPerPathTransfer()
+	{
+		EnergyTransferHandler handler = getHandler();
+		for(int tick = 0; tick < 3; ++tick)
+		{
+			connectors.forEach(TestEnergyConnector::resetEnergy);
+			assertTickMatchesPerPathTransfer(handler);
+		}
+		assertEquals(2, handler.getPlanCacheStats().hits());
+	}
+
+	@Test
+	void changedDemandMatchesPerPathTransfer()
+	{
+		EnergyTransferHandler handler = getHandler();
+		assertTickMatchesPerPathTransfer(handler);
+		connectors.forEach(TestEnergyConnector::resetEnergy);
+		sink3.requested = 20;
+		assertTickMatchesPerPathTransfer(handler);
+	}
+
+	@Test
+	void recomputeBypassesPlanCache()
+	{
+		EnergyTransferHandler handler = getHandler();
+		handler.prepareTick(null);
+		TransferPlan computed = handler.computeTick();
+		TransferPlan recomputed = handler.recomputeTick();
+
+		assertNotSame(computed, recomputed);
+		assertEquals(computed, recomputed);
+		assertSame(computed, handler.computeTick());
+		assertEquals(1, handler.getPlanCacheStats().hits());
+		assertEquals(1, handler.getPlanCacheStats().misses());
+	}
+
+	@Test
+	void onePassThroughCallPerConnectorAndSource()
+	{
+		TestEnergyConnector source = add(new TestEnergyConnector(1000, 0, 10000, 0));
+		TestEnergyConnector previous = source;
+		final int numRelays = 5;
+		for(int i = 1; i <= numRelays; ++i)
+		{
+			TestEnergyConnector relay = add(new TestEnergyConnector(1000+4*i, 0, 0, 0));
+			CHEAP.connect(global, previous.getPoint(), relay.getPoint());
+			previous = relay;
+		}
+		final int numSinks = 4;
+		for(int i = 0; i < numSinks; ++i)
+		{
+			TestEnergyConnector sink = add(new TestEnergyConnector(1000+4*numRelays+4, 4*i, 0, 10));
+			CHEAP.connect(global, previous.getPoint(), sink.getPoint());
+		}
+		EnergyTransferHandler handler = global.getLocalNet(source.getPoint())
+				.getHandler(EnergyTransferHandler.ID, EnergyTransferHandler.class);
+
+		handler.prepareTick(null);
+		TransferPlan plan = handler.computeTick();
+		calls.clear();
+		handler.commitTick(null, plan);
+
+		// One call per path would be numSinks*numRelays calls
+		assertEquals(numRelays, countCalls(TransferAction.PASS_THROUGH));
+		assertEquals(numSinks, countCalls(TransferAction.INSERT));
+		assertEquals(1, countCalls(TransferAction.EXTRACT));
+		assertEquals(numRelays+numSinks+1, plan.transfers().size());
+	}
+
+	@Test
+	void energyLevelsAreReadOncePerTick()
+	{
+		TestEnergyConnector sourceA = add(new TestEnergyConnector(2000, 0, 100, 0));
+		TestEnergyConnector sourceB = add(new TestEnergyConnector(2008, 0, 100, 0));
+		TestEnergyConnector sink = add(new UnbufferedSink(2004, 4, 100));
+		CHEAP.connect(global, sourceA.getPoint(), sink.getPoint());
+		CHEAP.connect(global, sourceB.getPoint(), sink.getPoint());
+		EnergyTransferHandler handler = global.getLocalNet(sink.getPoint())
+				.getHandler(EnergyTransferHandler.ID, EnergyTransferHandler.class);
+
+		calls.clear();
+		handler.update(null);
+
+		// Reading the demand again for the second source would let both sources insert 99
+		assertEquals(1, sink.requestedReads);
+		int inserted = 0;
+		for(PlannedTransfer call : calls)
+			if(call.connector()==sink&&call.action()==TransferAction.INSERT)
+				inserted += (int)call.amount();
+		assertEquals(100, inserted);
+	}
+
+	@Test
+	void addingShorterWireMatchesFreshPaths()
+	{
+		getHandler().update(null);
+		CHEAP.connect(global, source1.getPoint(), sink4.getPoint());
+		assertSamePathsAsFreshHandler(source1.getPoint());
+	}
+
+	@Test
+	void removingUsedWireMatchesFreshPaths()
+	{
+		EnergyTransferHandler handler = getHandler();
+		handler.update(null);
+		assertTrue(List.of(handler.getPath(source1.getPoint(), sink1.getPoint()).conns).contains(hubToLimiter));
+		global.removeConnection(hubToLimiter);
+		assertSamePathsAsFreshHandler(source1.getPoint());
+	}
+
+	@Test
+	void unloadingAndLoadingConnectorMatchesFreshPaths()
+	{
+		getHandler().update(null);
+		global.onConnectorUnload(sink2);
+		assertSamePathsAsFreshHandler(source1.getPoint());
+		assertFalse(getHandler().getSinks().containsKey(sink2.getPoint()));
+		getHandler().update(null);
+		global.onConnectorLoad(sink2, false);
+		assertSamePathsAsFreshHandler(source1.getPoint());
+		assertTrue(getHandler().getSinks().containsKey(sink2.getPoint()));
+	}
+
+	@Test
+	void mergingNetsMatchesFreshPaths()
+	{
+		TestEnergyConnector otherSource = add(new TestEnergyConnector(16, 20, 500, 0));
+		TestEnergyConnector otherRelay = add(new TestEnergyConnector(20, 20, 0, 0));
+		TestEnergyConnector otherSink = add(new TestEnergyConnector(24, 20, 0, 200));
+		CHEAP.connect(global, otherSource.getPoint(), otherRelay.getPoint());
+		CHEAP.connect(global, otherRelay.getPoint(), otherSink.getPoint());
+		assertNotSame(global.getLocalNet(source1.getPoint()), global.getLocalNet(otherSource.getPoint()));
+		getHandler().update(null);
+		global.getLocalNet(otherSource.getPoint())
+				.getHandler(EnergyTransferHandler.ID, EnergyTransferHandler.class)
+				.update(null);
+
+		CHEAP.connect(global, otherRelay.getPoint(), sink1.getPoint());
+
+		assertSame(global.getLocalNet(source1.getPoint()), global.getLocalNet(otherSource.getPoint()));
+		assertSamePathsAsFreshHandler(source1.getPoint());
+	}
+
+	/**
+	 * Compares the sources, sinks and all paths from each source of the handler of the given point's net with those of
+	 * a new handler, which computes everything from scratch
+	 */
+	private void assertSamePathsAsFreshHandler(ConnectionPoint inNet)
+	{
+		LocalWireNetwork net = global.getLocalNet(inNet);
+		EnergyTransferHandler handler = net.getHandler(EnergyTransferHandler.ID, EnergyTransferHandler.class);
+		EnergyTransferHandler fresh = new EnergyTransferHandler(net, global);
+		assertEquals(fresh.getSources(), handler.getSources());
+		assertEquals(fresh.getSinks(), handler.getSinks());
+		for(ConnectionPoint source : fresh.getSources().keySet())
+		{
+			Map<ConnectionPoint, Path> expected = fresh.getPathsFromSource(source);
+			Map<ConnectionPoint, Path> actual = handler.getPathsFromSource(source);
+			assertEquals(expected.keySet(), actual.keySet(), "Points reached from "+source);
+			for(Map.Entry<ConnectionPoint, Path> entry : expected.entrySet())
+			{
+				Path path = actual.get(entry.getKey());
+				assertArrayEquals(entry.getValue().conns, path.conns, "Path from "+source+" to "+entry.getKey());
+				assertEquals(entry.getValue().loss, path.loss, "Loss from "+source+" to "+entry.getKey());
+			}
+		}
+	}
+
+	private long countCalls(TransferAction action)
+	{
+		return calls.stream().filter(call -> call.action()==action).count();
+	}
+
+	private void assertTickMatchesPerPathTransfer(EnergyTransferHandler handler)
+	{
+		Object2DoubleOpenHashMap<Connection> expectedTransferred = new Object2DoubleOpenHashMap<>();
+		List<PlannedTransfer> expectedCalls = transferPerPath(handler, expectedTransferred);
+		calls.clear();
+		handler.update(null);
+
+		assertFalse(expectedCalls.isEmpty());
+		assertEquals(withoutPassThrough(expectedCalls), withoutPassThrough(calls));
+		// Pass-through calls are summed per connector point and source, so only the totals can be compared
+		Map<EnergyConnector, Double> expectedPassedThrough = sumPassThrough(expectedCalls);
+		Map<EnergyConnector, Double> passedThrough = sumPassThrough(calls);
+		assertFalse(expectedPassedThrough.isEmpty());
+		assertEquals(expectedPassedThrough.keySet(), passedThrough.keySet());
+		for(Map.Entry<EnergyConnector, Double> entry : expectedPassedThrough.entrySet())
+			assertEquals(entry.getValue(), passedThrough.get(entry.getKey()), 1e-9*entry.getValue());
+		Object2DoubleMap<Connection> transferred = handler.getTransferredLastTick();
+		assertEquals(expectedTransferred.keySet(), transferred.keySet());
+		// The handler adds up the energy of all paths through a connection in a different order
+		for(Object2DoubleMap.Entry<Connection> entry : expectedTransferred.object2DoubleEntrySet())
+			assertEquals(entry.getDoubleValue(), transferred.getDouble(entry.getKey()), 1e-9*entry.getDoubleValue());
+	}
+
+	private static List<PlannedTransfer> withoutPassThrough(List<PlannedTransfer> calls)
+	{
+		return calls.stream().filter(call -> call.action()!=TransferAction.PASS_THROUGH).toList();
+	}
+
+	private static Map<EnergyConnector, Double> sumPassThrough(List<PlannedTransfer> calls)
+	{
+		Map<EnergyConnector, Double> result = new HashMap<>();
+		for(PlannedTransfer call : calls)
+			if(call.action()==TransferAction.PASS_THROUGH)
+				result.merge(call.connector(), call.amount(), Double::sum);
+		return result;
+	}
+
+	/**
+	 * The transfer as it was before the paths from one source were handled as a tree: every path is walked on its
+	 * own, and the energy levels of the connectors are updated as the connectors above would update them
+	 */
+	private List<PlannedTransfer> transferPerPath(EnergyTransferHandler handler, Object2DoubleOpenHashMap<Connection> transferred)
+	{
+		LocalWireNetwork net = global.getLocalNet(connectors.get(0).getPoint());
+		Reference2IntOpenHashMap<EnergyConnector> availableLeft = new Reference2IntOpenHashMap<>();
+		Reference2IntOpenHashMap<EnergyConnector> requestedLeft = new Reference2IntOpenHashMap<>();
+		for(EnergyConnector connector : connectors)
+		{
+			availableLeft.put(connector, connector.getAvailableEnergy());
+			requestedLeft.put(connector, connector.getRequestedEnergy());
+		}
+		Map<Connection, Double> limitLeft = new HashMap<>();
+		List<PlannedTransfer> result = new ArrayList<>();
+		for(Map.Entry<ConnectionPoint, EnergyConnector> sourceEntry : handler.getSources().entrySet())
+		{
+			ConnectionPoint sourceCp = sourceEntry.getKey();
+			EnergyConnector source = sourceEntry.getValue();
+			int available = availableLeft.getInt(source);
+			if(available <= 0)
+				continue;
+			Map<ConnectionPoint, Path> paths = handler.getPathsFromSource(sourceCp);
+			record OutputData(double amount, Path path, EnergyConnector output)
+			{
+			}
+			List<OutputData> maxOut = new ArrayList<>();
+			double maxSum = 0;
+			for(Map.Entry<ConnectionPoint, EnergyConnector> sinkEntry : handler.getSinks().entrySet())
+			{
+				Path path = paths.get(sinkEntry.getKey());
+				if(path==null)
+					continue;
+				double limit = Double.MAX_VALUE;
+				Connection conn = null;
+				for(Connection c : path.conns)
+				{
+					Double max = getPowerLimit(net, c);
+					if(max!=null)
+					{
+						limit = limitLeft.computeIfAbsent(c, $ -> max);
+						conn = c;
+					}
+				}
+				EnergyConnector sink = sinkEntry.getValue();
+				int requested = (int)Math.min(requestedLeft.getInt(sink), limit*(1-path.loss));
+				if(requested <= 0)
+					continue;
+				double requiredAtSource = Math.min(requested/(1-path.loss), available);
+				if(conn!=null)
+					limitLeft.put(conn, limit-requiredAtSource);
+				maxOut.add(new OutputData(requiredAtSource, path, sink));
+				maxSum += requiredAtSource;
+			}
+			if(maxSum==0)
+				continue;
+			double allowedFactor = Math.min(1, available/maxSum);
+			for(OutputData entry : maxOut)
+			{
+				double atSource = allowedFactor*entry.amount();
+				double availableFactor = 1;
+				ConnectionPoint currentPoint = sourceCp;
+				for(Connection c : entry.path().conns)
+				{
+					currentPoint = c.getOtherEnd(currentPoint);
+					availableFactor *= (1-EnergyTransferHandler.getBasicLoss(c));
+					double availableAtPoint = atSource*availableFactor;
+					transferred.addTo(c, availableAtPoint);
+					if(!currentPoint.equals(entry.path().end)&&net.getConnector(currentPoint) instanceof EnergyConnector passedThrough)
+						result.add(new PlannedTransfer(passedThrough, TransferAction.PASS_THROUGH, availableAtPoint));
+				}
+				int inserted = (int)(atSource*availableFactor+0.01);
+				result.add(new PlannedTransfer(entry.output(), TransferAction.INSERT, inserted));
+				requestedLeft.put(entry.output(), Math.max(0, requestedLeft.getInt(entry.output())-inserted));
+			}
+			int extracted = allowedFactor < 1?available: (int)Math.ceil(maxSum);
+			result.add(new PlannedTransfer(source, TransferAction.EXTRACT, extracted));
+			availableLeft.put(source, Math.max(0, available-extracted));
+		}
+		return result;
+	}
+
+	@Nullable
+	private static Double getPowerLimit(LocalWireNetwork net, Connection c)
+	{
+		Double limit = null;
+		for(ConnectionPoint end : c.getEnds())
+			if(net.getConnector(end) instanceof LimitingEnergyConnector limiting)
+				limit = limiting.getPowerLimit();
+		return limit;
+	}
+
+	/**
+	 * Records every call made by the handler. A connector with neither energy available nor requested is a relay.
+	 */
+	private class TestEnergyConnector extends TestConnector implements EnergyConnector
+	{
+		private final int initialAvailable;
+		private final int initialRequested;
+		int available;
+		int requested;
+		int requestedReads = 0;
+
+		TestEnergyConnector(int x, int z, int available, int requested)
+		{
+			super(new BlockPos(x, 64, z));
+			this.initialAvailable = available;
+			this.initialRequested = requested;
+			resetEnergy();
+		}
+
+		void resetEnergy()
+		{
+			available = initialAvailable;
+			requested = initialRequested;
+		}
+
+		@Override
+		public Collection<ResourceLocation> getRequestedHandlers()
+		{
+			return List.of(EnergyTransferHandler.ID);
+		}
+
+		@Override
+		public boolean isSource(ConnectionPoint cp)
+		{
+			return initialAvailable > 0;
+		}
+
+		@Override
+		public boolean isSink(ConnectionPoint cp)
+		{
+			return initialRequested > 0;
+		}
+
+		@Override
+		public int getAvailableEnergy()
+		{
+			return available;
+		}
+
+		@Override
+		public int getRequestedEnergy()
+		{
+			++requestedReads;
+			return requested;
+		}
+
+		@Override
+		public void insertEnergy(int amount)
+		{
+			calls.add(new PlannedTransfer(this, TransferAction.INSERT, amount));
+			requested = Math.max(0, requested-amount);
+		}
+
+		@Override
+		public void extractEnergy(int amount)
+		{
+			calls.add(new PlannedTransfer(this, TransferAction.EXTRACT, amount));
+			available = Math.max(0, available-amount);
+		}
+
+		@Override
+		public void onEnergyPassedThrough(double amount)
+		{
+			calls.add(new PlannedTransfer(this, TransferAction.PASS_THROUGH, amount));
+		}
+	}
+
+	/**
+	 * Passes inserted energy on immediately, so it keeps requesting the same amount
+	 */
+	private class UnbufferedSink extends TestEnergyConnector
+	{
+		UnbufferedSink(int x, int z, int requested)
+		{
+			super(x, z, 0, requested);
+		}
+
+		@Override
+		public void insertEnergy(int amount)
+		{
+			calls.add(new PlannedTransfer(this, TransferAction.INSERT, amount));
+		}
+	}
+
+	private class TestLimiter extends TestEnergyConnector implements LimitingEnergyConnector
+	{
+		private final double limit;
+
+		TestLimiter(int x, int z, double limit)
+		{
+			super(x, z, 0, 0);
+			this.limit = limit;
+		}
+
+		@Override
+		public double getPowerLimit()
+		{
+			return limit;
+		}
+	}
+}
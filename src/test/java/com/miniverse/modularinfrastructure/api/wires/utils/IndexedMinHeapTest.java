@@ -0,0 +1,121 @@
+package com.miniverse.modularinfrastructure.api.wires.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexedMinHeapTest
+{
+	@Test
+	void extractsInKeyOrder()
+	{
+		final int size = 1000;
+		Random rand = new Random(42);
+		double[] keys = new double[size];
+		IndexedMinHeap heap = new IndexedMinHeap(size);
+		for(int i = 0; i < size; ++i)
+		{
+			keys[i] = rand.nextDouble();
+			heap.insert(i, keys[i]);
+		}
+		int[] expected = IntStream.range(0, size).boxed()
+				.sorted(Comparator.comparingDouble(i -> keys[i]))
+				.mapToInt(Integer::intValue)
+				.toArray();
+
+		int[] extracted = new int[size];
+		for(int i = 0; i < size; ++i)
+			extracted[i] = heap.extractMin();
+
+		assertArrayEquals(expected, extracted);
+		assertTrue(heap.isEmpty());
+	}
+
+	@Test
+	void decreaseKeyMovesElementForward()
+	{
+		IndexedMinHeap heap = new IndexedMinHeap(8);
+		for(int i = 0; i < 8; ++i)
+			heap.insert(i, 10+i);
+
+		heap.decreaseKey(7, 1);
+		heap.decreaseKey(5, 2);
+		heap.decreaseKey(6, 10);
+
+		assertEquals(1, heap.getKey(7));
+		assertEquals(7, heap.extractMin());
+		assertEquals(5, heap.extractMin());
+		// 6 now has the same key as 0, either may come first
+		int[] next = {heap.extractMin(), heap.extractMin()};
+		Arrays.sort(next);
+		assertArrayEquals(new int[]{0, 6}, next);
+		assertEquals(1, heap.extractMin());
+	}
+
+	@Test
+	void randomDecreaseKeysKeepOrder()
+	{
+		final int size = 500;
+		Random rand = new Random(7);
+		double[] keys = new double[size];
+		IndexedMinHeap heap = new IndexedMinHeap(size);
+		for(int i = 0; i < size; ++i)
+		{
+			keys[i] = rand.nextDouble();
+			heap.insert(i, keys[i]);
+		}
+		for(int i = 0; i < 2000; ++i)
+		{
+			final int element = rand.nextInt(size);
+			keys[element] *= rand.nextDouble();
+			heap.decreaseKey(element, keys[element]);
+		}
+
+		double last = Double.NEGATIVE_INFINITY;
+		while(!heap.isEmpty())
+		{
+			final int element = heap.extractMin();
+			assertTrue(keys[element] >= last, "Extracted "+keys[element]+" after "+last);
+			last = keys[element];
+		}
+	}
+
+	@Test
+	void tracksContainedElements()
+	{
+		IndexedMinHeap heap = new IndexedMinHeap(4);
+		heap.insert(2, 1);
+		heap.insert(3, 0);
+
+		assertTrue(heap.contains(2));
+		assertFalse(heap.contains(1));
+		assertEquals(2, heap.size());
+		assertEquals(3, heap.extractMin());
+		assertFalse(heap.contains(3));
+
+		heap.clear();
+		assertTrue(heap.isEmpty());
+		assertFalse(heap.contains(2));
+		// Cleared elements can be inserted again
+		heap.insert(2, 5);
+		assertEquals(2, heap.extractMin());
+	}
+
+	@Test
+	void rejectsInvalidOperations()
+	{
+		IndexedMinHeap heap = new IndexedMinHeap(4);
+		heap.insert(0, 1);
+
+		assertThrows(IllegalArgumentException.class, () -> heap.insert(0, 2));
+		assertThrows(IllegalArgumentException.class, () -> heap.decreaseKey(0, 2));
+		assertThrows(IllegalArgumentException.class, () -> heap.decreaseKey(1, 0));
+		heap.extractMin();
+		assertThrows(IllegalStateException.class, heap::extractMin);
+	}
+}